@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.barracks.webhookservice.model.DeviceEvent;
+import io.barracks.webhookservice.model.DeviceEventHook;
+import io.barracks.webhookservice.model.RawJson;
+import io.barracks.webhookservice.rabbitmq.HookMessageConverter;
+import io.barracks.webhookservice.utils.BenchmarkPayloads;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutboundSerializationBenchmark {
+
+    @Param({BenchmarkPayloads.BARE, BenchmarkPayloads.TYPICAL, BenchmarkPayloads.LARGE})
+    public String payload;
+
+    private HttpMessageConverter<Object> jsonConverter;
+
+    private RawJsonHttpMessageConverter rawJsonConverter;
+
+    private DeviceEvent deviceEvent;
+
+    private RawJson rawDeviceEvent;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        final HateoasRestClient restClient = new HateoasRestClient() {
+        };
+        jsonConverter = (HttpMessageConverter<Object>) restClient.prepareRestTemplateBuilder(objectMapper, new RestTemplateBuilder())
+                .build()
+                .getMessageConverters()
+                .stream()
+                .filter(converter -> converter.canWrite(DeviceEvent.class, null))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+        rawJsonConverter = new RawJsonHttpMessageConverter(MediaType.APPLICATION_JSON_UTF8);
+
+        final HookMessageConverter hookMessageConverter = new HookMessageConverter(objectMapper);
+        final DeviceEventHook deviceEventHook = (DeviceEventHook) hookMessageConverter.fromMessage(hookMessageConverter.toMessage(
+                BenchmarkPayloads.getDeviceEventHook(payload, "http://localhost/hook"),
+                new MessageProperties()
+        ));
+        rawDeviceEvent = deviceEventHook.getRawDeviceEvent();
+        deviceEvent = deviceEventHook.getDeviceEvent();
+    }
+
+    @Benchmark
+    public byte[] serializeDeviceEvent() throws IOException {
+        final MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        jsonConverter.write(deviceEvent, null, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public byte[] writeRawDeviceEvent() throws IOException {
+        final MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        rawJsonConverter.write(rawDeviceEvent, null, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public byte[] serializeCustomClientData() throws IOException {
+        final MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        jsonConverter.write(deviceEvent.getRequest().getCustomClientData(), null, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.client;
+
+import io.barracks.webhookservice.utils.ChunkedContentDecoder;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseConsumptionBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final int MAX_ERROR_BODY_SIZE = 1024;
+
+    @Param({"0", "2048", "1048576"})
+    public int responseSize;
+
+    @Param({"200", "500"})
+    public int status;
+
+    private ChunkedContentDecoder decoder;
+
+    @Setup
+    public void setUp() {
+        final byte[] body = new byte[responseSize];
+        Arrays.fill(body, (byte) 'x');
+        decoder = new ChunkedContentDecoder(body, CHUNK_SIZE);
+    }
+
+    @Benchmark
+    public String bufferAndDecode() throws Exception {
+        final HttpResponse response = consume(new BasicAsyncResponseConsumer());
+        return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public HttpResponse discard() throws Exception {
+        return consume(new DiscardingHttpAsyncClient.BoundedResponseConsumer(MAX_ERROR_BODY_SIZE));
+    }
+
+    private HttpResponse consume(HttpAsyncResponseConsumer<HttpResponse> consumer) throws Exception {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+        final BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContentLength(responseSize);
+        entity.setContentType("text/html; charset=UTF-8");
+        response.setEntity(entity);
+        decoder.reset();
+        consumer.responseReceived(response);
+        while (!decoder.isCompleted()) {
+            consumer.consumeContent(decoder, null);
+        }
+        consumer.responseCompleted(new BasicHttpContext());
+        return consumer.getResult();
+    }
+
+}
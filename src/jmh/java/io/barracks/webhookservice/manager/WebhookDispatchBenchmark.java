@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.barracks.webhookservice.client.WebhookClient;
+import io.barracks.webhookservice.metrics.WebhookMetrics;
+import io.barracks.webhookservice.model.DeviceEventHook;
+import io.barracks.webhookservice.rabbitmq.HookMessageConverter;
+import io.barracks.webhookservice.utils.BenchmarkPayloads;
+import io.barracks.webhookservice.utils.StubWebhookServer;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class WebhookDispatchBenchmark {
+
+    @Param({BenchmarkPayloads.BARE, BenchmarkPayloads.TYPICAL, BenchmarkPayloads.LARGE})
+    public String payload;
+
+    @Param({"false", "true"})
+    public boolean passThrough;
+
+    private StubWebhookServer server;
+
+    private CloseableHttpAsyncClient httpClient;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private WebhookBatcher webhookBatcher;
+
+    private RateLimiterRegistry rateLimiterRegistry;
+
+    private WebhookManager webhookManager;
+
+    private HookMessageConverter hookMessageConverter;
+
+    private Message message;
+
+    @Setup
+    public void setUp() throws IOException {
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        server = StubWebhookServer.start(16);
+        httpClient = HttpAsyncClients.custom().setMaxConnTotal(64).setMaxConnPerRoute(64).build();
+        circuitBreakerRegistry = new CircuitBreakerRegistry(CircuitBreakerSettings.builder()
+                .failureRateThreshold(50)
+                .slowCallDurationThreshold(10000)
+                .slowCallRateThreshold(80)
+                .slidingWindowSize(50)
+                .minimumNumberOfCalls(20)
+                .waitDurationInOpenState(30000)
+                .permittedCallsInHalfOpenState(3)
+                .maxParkedCalls(200)
+                .build());
+        webhookBatcher = new WebhookBatcher(new String[0], 1, 1000);
+        rateLimiterRegistry = new RateLimiterRegistry(0, 1, false, new String[0], 5000, 1);
+        webhookManager = new WebhookManager(
+                new WebhookClient(
+                        objectMapper,
+                        new RestTemplateBuilder(),
+                        new HttpComponentsAsyncClientHttpRequestFactory(httpClient),
+                        new WebhookMetrics(),
+                        passThrough
+                ),
+                new BulkheadRegistry(64, 1024),
+                circuitBreakerRegistry,
+                webhookBatcher,
+                rateLimiterRegistry,
+                new WebhookCoalescer(new String[0], 1000),
+                new WebhookFilters(new String[0]),
+                new TenantScheduler(1024, 0, 1, new String[0])
+        );
+        hookMessageConverter = new HookMessageConverter(objectMapper);
+        message = hookMessageConverter.toMessage(
+                BenchmarkPayloads.getDeviceEventHook(payload, server.getUrl()),
+                new MessageProperties()
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        webhookBatcher.shutdown();
+        rateLimiterRegistry.shutdown();
+        circuitBreakerRegistry.shutdown();
+        httpClient.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public void dispatchDeviceEvent() {
+        webhookManager.postDeviceEventHook((DeviceEventHook) hookMessageConverter.fromMessage(message)).join();
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.barracks.webhookservice.model.DeviceEvent;
+import io.barracks.webhookservice.model.DeviceEventHook;
+import io.barracks.webhookservice.utils.BenchmarkPayloads;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageConversionBenchmark {
+
+    @Param({BenchmarkPayloads.BARE, BenchmarkPayloads.TYPICAL, BenchmarkPayloads.LARGE})
+    public String payload;
+
+    private Jackson2JsonMessageConverter jacksonConverter;
+
+    private HookMessageConverter hookMessageConverter;
+
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        jacksonConverter = new Jackson2JsonMessageConverter();
+        jacksonConverter.setJsonObjectMapper(objectMapper);
+        hookMessageConverter = new HookMessageConverter(objectMapper);
+        message = jacksonConverter.toMessage(
+                BenchmarkPayloads.getDeviceEventHook(payload, "http://localhost/hook"),
+                new MessageProperties()
+        );
+    }
+
+    @Benchmark
+    public Object jacksonConversion() {
+        return jacksonConverter.fromMessage(message);
+    }
+
+    @Benchmark
+    public Object streamingConversion() {
+        return hookMessageConverter.fromMessage(message);
+    }
+
+    @Benchmark
+    public DeviceEvent streamingConversionWithEventBinding() {
+        return ((DeviceEventHook) hookMessageConverter.fromMessage(message)).getDeviceEvent();
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.utils;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.barracks.webhookservice.model.DeviceEvent;
+import io.barracks.webhookservice.model.DeviceEventHook;
+import io.barracks.webhookservice.model.DeviceRequest;
+import io.barracks.webhookservice.model.Hook;
+import io.barracks.webhookservice.model.ResolvedVersions;
+
+import java.util.UUID;
+
+public class BenchmarkPayloads {
+
+    public static final String BARE = "bare";
+
+    public static final String TYPICAL = "typical";
+
+    public static final String LARGE = "large";
+
+    public static DeviceEventHook getDeviceEventHook(String payload, String url) {
+        return DeviceEventHook.builder()
+                .hook(Hook.builder().name("benchmark").url(url).build())
+                .deviceEvent(getDeviceEvent(payload))
+                .build();
+    }
+
+    public static DeviceEvent getDeviceEvent(String payload) {
+        switch (payload) {
+            case BARE:
+                return DeviceEvent.builder()
+                        .request(DeviceRequest.builder()
+                                .unitId(UUID.randomUUID().toString())
+                                .userId(UUID.randomUUID().toString())
+                                .build())
+                        .response(ResolvedVersions.builder().build())
+                        .build();
+            case TYPICAL:
+                return DeviceEventUtils.getDeviceEvent();
+            case LARGE:
+                return getLargeDeviceEvent(300, 200);
+            default:
+                throw new IllegalArgumentException("Unknown payload " + payload);
+        }
+    }
+
+    private static DeviceEvent getLargeDeviceEvent(int packages, int customDataEntries) {
+        final DeviceRequest.DeviceRequestBuilder request = DeviceRequestUtils.getDeviceRequest().toBuilder();
+        final ResolvedVersions.ResolvedVersionsBuilder response = ResolvedVersions.builder();
+        for (int i = 0; i < packages; i++) {
+            request.addPackage(PackageUtils.getPackage());
+            response.addAvailable(VersionUtils.getVersion());
+        }
+        final ObjectNode customClientData = JsonNodeFactory.instance.objectNode();
+        for (int i = 0; i < customDataEntries; i++) {
+            customClientData.putObject(UUID.randomUUID().toString())
+                    .put("label", UUID.randomUUID().toString())
+                    .put("enabled", i % 2 == 0)
+                    .put("value", i * 1.5)
+                    .putArray("tags").add("tag-" + i).add(UUID.randomUUID().toString());
+        }
+        return DeviceEvent.builder()
+                .request(request.customClientData(customClientData).build())
+                .response(response.build())
+                .build();
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.loadtest;
+
+class LoadTestSettings {
+
+    final String amqpUri = System.getProperty("loadtest.amqp.uri", "");
+
+    final double rate = Double.parseDouble(System.getProperty("loadtest.rate", "500"));
+
+    final double changeRatio = Double.parseDouble(System.getProperty("loadtest.changeratio", "0.1"));
+
+    final long duration = Long.parseLong(System.getProperty("loadtest.duration", "60"));
+
+    final long drainTimeout = Long.parseLong(System.getProperty("loadtest.draintimeout", "120"));
+
+    final int endpoints = Integer.parseInt(System.getProperty("loadtest.endpoints", "4"));
+
+    final long minLatency = Long.parseLong(System.getProperty("loadtest.latency.min", "20"));
+
+    final long meanLatency = Long.parseLong(System.getProperty("loadtest.latency.mean", "50"));
+
+    final double errorRate = Double.parseDouble(System.getProperty("loadtest.errorrate", "0.01"));
+
+    final String reportDir = System.getProperty("loadtest.reportdir", "build/reports/loadtest");
+
+    @Override
+    public String toString() {
+        return "rate=" + rate + "/s changeRatio=" + changeRatio + " duration=" + duration + "s endpoints=" + endpoints
+                + " latency=" + minLatency + "ms min/" + meanLatency + "ms mean errorRate=" + errorRate
+                + " broker=" + (amqpUri.isEmpty() ? "embedded" : amqpUri);
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+class StubEndpoint {
+
+    static final String SENT_AT_FIELD = "loadTestSentAt";
+
+    private static final Pattern SENT_AT = Pattern.compile("\"" + SENT_AT_FIELD + "\":(\\d+)");
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final ScheduledExecutorService responder;
+
+    private final LoadTestSettings settings;
+
+    private final LatencyRecorder latencies;
+
+    private final AtomicLong successes = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    StubEndpoint(LoadTestSettings settings, LatencyRecorder latencies) throws IOException {
+        this.settings = settings;
+        this.latencies = latencies;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.executor = Executors.newFixedThreadPool(4);
+        this.responder = Executors.newScheduledThreadPool(2);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/hook";
+    }
+
+    long getSuccesses() {
+        return successes.get();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    void stop() {
+        server.stop(0);
+        responder.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final long receivedAt = System.nanoTime();
+        final byte[] body;
+        try (InputStream input = exchange.getRequestBody()) {
+            body = StreamUtils.copyToByteArray(input);
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final boolean failed = random.nextDouble() < settings.errorRate;
+        if (!failed) {
+            final Matcher matcher = SENT_AT.matcher(new String(body, StandardCharsets.UTF_8));
+            if (matcher.find()) {
+                latencies.record(receivedAt - Long.parseLong(matcher.group(1)));
+            }
+        }
+        final long latency = settings.minLatency
+                + (long) (-Math.log(1 - random.nextDouble()) * Math.max(0, settings.meanLatency - settings.minLatency));
+        responder.schedule(() -> respond(exchange, failed), latency, TimeUnit.MILLISECONDS);
+    }
+
+    private void respond(HttpExchange exchange, boolean failed) {
+        try {
+            exchange.sendResponseHeaders(failed ? 500 : 200, -1);
+            (failed ? errors : successes).incrementAndGet();
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        } finally {
+            exchange.close();
+        }
+    }
+
+}
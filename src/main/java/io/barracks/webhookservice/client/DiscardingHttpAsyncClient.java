@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
+
+public class DiscardingHttpAsyncClient extends CloseableHttpAsyncClient {
+
+    private static final int DRAIN_BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<ByteBuffer> DRAIN_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(DRAIN_BUFFER_SIZE));
+
+    private final CloseableHttpAsyncClient delegate;
+
+    private final int maxErrorBodySize;
+
+    public DiscardingHttpAsyncClient(CloseableHttpAsyncClient delegate, int maxErrorBodySize) {
+        this.delegate = delegate;
+        this.maxErrorBodySize = maxErrorBodySize;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+
+    @Override
+    public void start() {
+        delegate.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public Future<HttpResponse> execute(HttpUriRequest request, HttpContext context, FutureCallback<HttpResponse> callback) {
+        return delegate.execute(HttpAsyncMethods.create(request), new BoundedResponseConsumer(maxErrorBodySize), context, callback);
+    }
+
+    @Override
+    public <T> Future<T> execute(
+            HttpAsyncRequestProducer requestProducer,
+            HttpAsyncResponseConsumer<T> responseConsumer,
+            HttpContext context,
+            FutureCallback<T> callback
+    ) {
+        return delegate.execute(requestProducer, responseConsumer, context, callback);
+    }
+
+    static class BoundedResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+        private final int maxErrorBodySize;
+
+        private HttpResponse response;
+
+        private ContentType contentType;
+
+        private byte[] kept;
+
+        private int keptLength;
+
+        BoundedResponseConsumer(int maxErrorBodySize) {
+            this.maxErrorBodySize = maxErrorBodySize;
+        }
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+            this.contentType = contentType;
+            if (response.getStatusLine().getStatusCode() >= 300 && maxErrorBodySize > 0) {
+                final long length = entity.getContentLength();
+                kept = new byte[length >= 0 ? (int) Math.min(length, maxErrorBodySize) : maxErrorBodySize];
+            }
+        }
+
+        @Override
+        protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+            final ByteBuffer buffer = DRAIN_BUFFER.get();
+            buffer.clear();
+            while (decoder.read(buffer) > 0) {
+                if (kept != null && keptLength < kept.length) {
+                    buffer.flip();
+                    final int count = Math.min(buffer.remaining(), kept.length - keptLength);
+                    buffer.get(kept, keptLength, count);
+                    keptLength += count;
+                }
+                buffer.clear();
+            }
+        }
+
+        @Override
+        protected HttpResponse buildResult(HttpContext context) {
+            response.setEntity(kept == null ? null : new ByteArrayEntity(kept, 0, keptLength, contentType));
+            return response;
+        }
+
+        @Override
+        protected void releaseResources() {
+            response = null;
+            kept = null;
+        }
+
+    }
+
+}
@@ -25,59 +25,151 @@
 package io.barracks.webhookservice.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.barracks.commons.util.Endpoint;
 import io.barracks.webhookservice.client.exception.WebhookClientException;
+import io.barracks.webhookservice.metrics.WebhookMetrics;
 import io.barracks.webhookservice.model.DeviceChangeEventHook;
 import io.barracks.webhookservice.model.DeviceEvent;
 import io.barracks.webhookservice.model.DeviceEventHook;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.web.client.AsyncRestTemplate;
 import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Component
+@Slf4j
 public class WebhookClient extends HateoasRestClient {
 
-    private final RestTemplate restTemplate;
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    @Getter(AccessLevel.PACKAGE)
+    private final AsyncRestTemplate asyncRestTemplate;
+
+    private final WebhookMetrics webhookMetrics;
+
+    private final boolean passThrough;
 
     @Autowired
     public WebhookClient(
             ObjectMapper mapper,
-            RestTemplateBuilder restTemplateBuilder
+            RestTemplateBuilder restTemplateBuilder,
+            AsyncClientHttpRequestFactory asyncClientHttpRequestFactory,
+            WebhookMetrics webhookMetrics,
+            @Value("${io.barracks.webhook.http.passthrough}") boolean passThrough
     ) {
-        this.restTemplate = prepareRestTemplateBuilder(mapper, restTemplateBuilder).build();
+        this.asyncRestTemplate = new AsyncRestTemplate(
+                asyncClientHttpRequestFactory,
+                prepareRestTemplateBuilder(mapper, restTemplateBuilder).build()
+        );
+        this.webhookMetrics = webhookMetrics;
+        this.passThrough = passThrough;
+        final List<HttpMessageConverter<?>> converters = asyncRestTemplate.getMessageConverters();
+        converters.add(0, new RawJsonHttpMessageConverter(getContentType(converters, DeviceEvent.class)));
+    }
+
+    public CompletableFuture<Void> postDeviceEvent(DeviceEventHook deviceEventHook) {
+        final Object body = passThrough && deviceEventHook.getRawDeviceEvent() != null
+                ? deviceEventHook.getRawDeviceEvent()
+                : deviceEventHook.getDeviceEvent();
+        return post(deviceEventHook.getHook().getUrl(), new HttpEntity<>(body, headersOf(deviceEventHook.getIdempotencyKey())));
     }
 
+    public CompletableFuture<Void> postDeviceChangeEvent(DeviceChangeEventHook deviceChangeEventHook) {
+        final Object body = passThrough && deviceChangeEventHook.getRawDeviceChangeEvent() != null
+                ? deviceChangeEventHook.getRawDeviceChangeEvent()
+                : deviceChangeEventHook.getDeviceChangeEvent();
+        return post(deviceChangeEventHook.getHook().getUrl(), new HttpEntity<>(body, headersOf(deviceChangeEventHook.getIdempotencyKey())));
+    }
 
-    public void postDeviceEvent(DeviceEventHook deviceEventHook) {
+    public CompletableFuture<Void> postEvents(String url, List<?> events) {
+        return post(url, new HttpEntity<>(events));
+    }
 
+    private CompletableFuture<Void> post(String url, HttpEntity<?> entity) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final long startedAt = webhookMetrics.requestStarted(url);
         try {
-            restTemplate.exchange(
-                    deviceEventHook.getHook().getUrl(),
+            final ListenableFuture<ResponseEntity<Void>> response = asyncRestTemplate.exchange(
+                    url,
                     HttpMethod.POST,
-                    new HttpEntity<>(deviceEventHook.getDeviceEvent()),
-                    String.class
+                    entity,
+                    Void.class
             );
-        } catch (HttpStatusCodeException e) {
-            throw new WebhookClientException(e);
+            response.addCallback(new ListenableFutureCallback<ResponseEntity<Void>>() {
+                @Override
+                public void onSuccess(ResponseEntity<Void> responseEntity) {
+                    webhookMetrics.requestCompleted(url, startedAt, responseEntity.getStatusCodeValue());
+                    result.complete(null);
+                }
+
+                @Override
+                public void onFailure(Throwable throwable) {
+                    webhookMetrics.requestCompleted(url, startedAt, statusOf(throwable));
+                    result.completeExceptionally(toClientException(url, throwable));
+                }
+            });
+        } catch (Exception e) {
+            webhookMetrics.requestCompleted(url, startedAt, statusOf(e));
+            result.completeExceptionally(toClientException(url, e));
         }
+        return result;
     }
 
-    public void postDeviceChangeEvent(DeviceChangeEventHook deviceChangeEventHook) {
+    private static HttpHeaders headersOf(String idempotencyKey) {
+        final HttpHeaders headers = new HttpHeaders();
+        if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+        return headers;
+    }
 
-        try {
-            restTemplate.exchange(
-                    deviceChangeEventHook.getHook().getUrl(),
-                    HttpMethod.POST,
-                    new HttpEntity<>(deviceChangeEventHook.getDeviceChangeEvent()),
-                    String.class
-            );
-        } catch (HttpStatusCodeException e) {
-            throw new WebhookClientException(e);
+    private static int statusOf(Throwable throwable) {
+        return throwable instanceof HttpStatusCodeException ? ((HttpStatusCodeException) throwable).getRawStatusCode() : 0;
+    }
+
+    private static MediaType getContentType(List<HttpMessageConverter<?>> converters, Class<?> type) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter.canWrite(type, null)) {
+                MediaType contentType = converter.getSupportedMediaTypes().get(0);
+                if (contentType.getCharset() == null && converter instanceof AbstractHttpMessageConverter) {
+                    final Charset charset = ((AbstractHttpMessageConverter<?>) converter).getDefaultCharset();
+                    if (charset != null) {
+                        contentType = new MediaType(contentType, charset);
+                    }
+                }
+                return contentType;
+            }
+        }
+        return MediaType.APPLICATION_JSON_UTF8;
+    }
+
+    private Throwable toClientException(String url, Throwable throwable) {
+        if (throwable instanceof HttpStatusCodeException) {
+            final HttpStatusCodeException exception = (HttpStatusCodeException) throwable;
+            if (exception.getResponseBodyAsByteArray().length > 0) {
+                log.warn("Hook " + url + " answered " + exception.getRawStatusCode() + ": " + exception.getResponseBodyAsString());
+            }
+            return new WebhookClientException(exception);
         }
+        return throwable;
     }
 
 }
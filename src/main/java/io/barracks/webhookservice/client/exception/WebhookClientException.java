@@ -25,10 +25,23 @@
 package io.barracks.webhookservice.client.exception;
 
 import io.barracks.commons.exceptions.BarracksServiceClientException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
 
+import java.util.concurrent.CompletionException;
+
 public class WebhookClientException extends BarracksServiceClientException {
     public WebhookClientException(HttpStatusCodeException cause) {
         super(cause);
     }
+
+    public static boolean isRetryable(Throwable throwable) {
+        final Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        if (cause != null && cause.getCause() instanceof HttpClientErrorException) {
+            final HttpStatus status = ((HttpClientErrorException) cause.getCause()).getStatusCode();
+            return status == HttpStatus.REQUEST_TIMEOUT || status == HttpStatus.TOO_MANY_REQUESTS;
+        }
+        return true;
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.config;
+
+import io.barracks.webhookservice.client.DiscardingHttpAsyncClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@EnableScheduling
+public class HttpClientConfig {
+
+    @Value("${io.barracks.webhook.http.iothreads}")
+    private int ioThreads;
+
+    @Value("${io.barracks.webhook.http.maxconnections}")
+    private int maxConnections;
+
+    @Value("${io.barracks.webhook.http.maxconnectionsperroute}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${io.barracks.webhook.http.connecttimeout}")
+    private int connectTimeout;
+
+    @Value("${io.barracks.webhook.http.readtimeout}")
+    private int readTimeout;
+
+    @Value("${io.barracks.webhook.http.connectionrequesttimeout}")
+    private int connectionRequestTimeout;
+
+    @Value("${io.barracks.webhook.http.keepalive}")
+    private long maxKeepAlive;
+
+    @Value("${io.barracks.webhook.http.maxidletime}")
+    private long maxIdleTime;
+
+    @Value("${io.barracks.webhook.http.maxerrorbodysize}")
+    private int maxErrorBodySize;
+
+    @Bean(destroyMethod = "shutdown")
+    public PoolingNHttpClientConnectionManager webhookConnectionManager() throws IOReactorException {
+        final PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(
+                        IOReactorConfig.custom()
+                                .setIoThreadCount(ioThreads)
+                                .setConnectTimeout(connectTimeout)
+                                .setSoTimeout(readTimeout)
+                                .setSoKeepAlive(true)
+                                .build()
+                )
+        );
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        return connectionManager;
+    }
+
+    @Bean
+    public AsyncClientHttpRequestFactory asyncClientHttpRequestFactory(PoolingNHttpClientConnectionManager webhookConnectionManager) {
+        return new HttpComponentsAsyncClientHttpRequestFactory(new DiscardingHttpAsyncClient(
+                HttpAsyncClients.custom()
+                        .setConnectionManager(webhookConnectionManager)
+                        .setKeepAliveStrategy(keepAliveStrategy())
+                        .setDefaultRequestConfig(
+                                RequestConfig.custom()
+                                        .setConnectTimeout(connectTimeout)
+                                        .setSocketTimeout(readTimeout)
+                                        .setConnectionRequestTimeout(connectionRequestTimeout)
+                                        .build()
+                        )
+                        .build(),
+                maxErrorBodySize
+        ));
+    }
+
+    @Scheduled(fixedDelayString = "${io.barracks.webhook.http.evictioninterval}")
+    public void evictIdleConnections() throws IOReactorException {
+        final PoolingNHttpClientConnectionManager connectionManager = webhookConnectionManager();
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+    }
+
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            final long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? Math.min(keepAlive, maxKeepAlive) : maxKeepAlive;
+        };
+    }
+
+}
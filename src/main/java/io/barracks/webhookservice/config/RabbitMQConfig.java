@@ -25,10 +25,17 @@
 package io.barracks.webhookservice.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.barracks.webhookservice.rabbitmq.DeliveryExecutor;
+import io.barracks.webhookservice.rabbitmq.HookMessageConverter;
+import io.barracks.webhookservice.rabbitmq.ListenerFailureAdvice;
+import io.barracks.webhookservice.rabbitmq.RetryBackOff;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -37,6 +44,9 @@ import org.springframework.context.annotation.Configuration;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 @Configuration
 @EnableRabbit
@@ -45,17 +55,72 @@ public class RabbitMQConfig {
     @Value("${io.barracks.webhook.queuename}")
     private String queueName;
 
+    @Value("${io.barracks.webhookchange.queuename}")
+    private String changeQueueName;
+
+    @Value("${io.barracks.webhook.parkinglot.queuename}")
+    private String parkingLotQueueName;
+
     @Value("${io.barracks.amqp.uri}")
     private String uri;
 
+    @Value("${io.barracks.webhook.concurrentconsumers}")
+    private int webhookConcurrentConsumers;
+
+    @Value("${io.barracks.webhook.maxconcurrentconsumers}")
+    private int webhookMaxConcurrentConsumers;
+
+    @Value("${io.barracks.webhook.prefetchcount}")
+    private int webhookPrefetchCount;
+
+    @Value("${io.barracks.webhookchange.concurrentconsumers}")
+    private int webhookChangeConcurrentConsumers;
+
+    @Value("${io.barracks.webhookchange.maxconcurrentconsumers}")
+    private int webhookChangeMaxConcurrentConsumers;
+
+    @Value("${io.barracks.webhookchange.prefetchcount}")
+    private int webhookChangePrefetchCount;
+
+    @Value("${io.barracks.amqp.consumers.startmininterval}")
+    private long startConsumerMinInterval;
+
+    @Value("${io.barracks.amqp.consumers.stopmininterval}")
+    private long stopConsumerMinInterval;
+
+    @Value("${io.barracks.amqp.consumers.activetrigger}")
+    private int consecutiveActiveTrigger;
+
+    @Value("${io.barracks.amqp.consumers.idletrigger}")
+    private int consecutiveIdleTrigger;
+
+    @Value("${io.barracks.amqp.consumers.batchsize}")
+    private int consumerBatchSize;
+
+    @Value("${io.barracks.webhook.retry.initialdelay}")
+    private long retryInitialDelay;
+
+    @Value("${io.barracks.webhook.retry.multiplier}")
+    private double retryMultiplier;
+
+    @Value("${io.barracks.webhook.retry.maxdelay}")
+    private long retryMaxDelay;
+
+    @Value("${io.barracks.webhook.retry.maxattempts}")
+    private int retryMaxAttempts;
+
+    @Value("${io.barracks.webhook.retry.jitterslots}")
+    private int retryJitterSlots;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private DeliveryExecutor deliveryExecutor;
+
     @Bean
     public MessageConverter messageConverter(ObjectMapper objectMapper) {
-        Jackson2JsonMessageConverter jackson2JsonMessageConverter = new Jackson2JsonMessageConverter();
-        jackson2JsonMessageConverter.setJsonObjectMapper(objectMapper);
-        return jackson2JsonMessageConverter;
+        return new HookMessageConverter(objectMapper);
     }
 
     @Bean
@@ -63,4 +128,87 @@ public class RabbitMQConfig {
         return new CachingConnectionFactory(new URI(uri));
     }
 
+    @Bean
+    public RetryBackOff retryBackOff() {
+        return new RetryBackOff(retryInitialDelay, retryMultiplier, retryMaxDelay, retryMaxAttempts, retryJitterSlots);
+    }
+
+    @Bean
+    public List<Queue> retryQueues(RetryBackOff retryBackOff) {
+        final List<Queue> queues = new ArrayList<>();
+        for (String source : Arrays.asList(queueName, changeQueueName)) {
+            for (long delay : retryBackOff.getQueueDelays()) {
+                queues.add(
+                        QueueBuilder.durable(RetryBackOff.getRetryQueueName(source, delay))
+                                .withArgument("x-message-ttl", delay)
+                                .withArgument("x-dead-letter-exchange", "")
+                                .withArgument("x-dead-letter-routing-key", source)
+                                .build()
+                );
+            }
+        }
+        return queues;
+    }
+
+    @Bean
+    public Queue parkingLotQueue() {
+        return QueueBuilder.durable(parkingLotQueueName).build();
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory webhookListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter messageConverter,
+            ListenerFailureAdvice listenerFailureAdvice
+    ) {
+        return listenerContainerFactory(
+                connectionFactory,
+                messageConverter,
+                listenerFailureAdvice,
+                webhookConcurrentConsumers,
+                webhookMaxConcurrentConsumers,
+                webhookPrefetchCount
+        );
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory webhookChangeListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter messageConverter,
+            ListenerFailureAdvice listenerFailureAdvice
+    ) {
+        return listenerContainerFactory(
+                connectionFactory,
+                messageConverter,
+                listenerFailureAdvice,
+                webhookChangeConcurrentConsumers,
+                webhookChangeMaxConcurrentConsumers,
+                webhookChangePrefetchCount
+        );
+    }
+
+    private SimpleRabbitListenerContainerFactory listenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter messageConverter,
+            ListenerFailureAdvice listenerFailureAdvice,
+            int concurrentConsumers,
+            int maxConcurrentConsumers,
+            int prefetchCount
+    ) {
+        final SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setAdviceChain(listenerFailureAdvice);
+        factory.setConcurrentConsumers(concurrentConsumers);
+        factory.setMaxConcurrentConsumers(maxConcurrentConsumers);
+        factory.setPrefetchCount(deliveryExecutor.prefetchFor(prefetchCount, maxConcurrentConsumers));
+        factory.setStartConsumerMinInterval(startConsumerMinInterval);
+        factory.setStopConsumerMinInterval(stopConsumerMinInterval);
+        factory.setConsecutiveActiveTrigger(consecutiveActiveTrigger);
+        factory.setConsecutiveIdleTrigger(consecutiveIdleTrigger);
+        factory.setTxSize(consumerBatchSize);
+        return factory;
+    }
+
 }
@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.endpoint;
+
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+public class ConnectionPoolEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    private final PoolingNHttpClientConnectionManager connectionManager;
+
+    @Autowired
+    public ConnectionPoolEndpoint(PoolingNHttpClientConnectionManager connectionManager) {
+        super("connectionpool");
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        final Map<String, Object> routes = new TreeMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            routes.put(route.getTargetHost().toURI(), toMap(connectionManager.getStats(route)));
+        }
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", toMap(connectionManager.getTotalStats()));
+        result.put("routes", routes);
+        return result;
+    }
+
+    private Map<String, Integer> toMap(PoolStats stats) {
+        final Map<String, Integer> result = new LinkedHashMap<>();
+        result.put("leased", stats.getLeased());
+        result.put("pending", stats.getPending());
+        result.put("available", stats.getAvailable());
+        result.put("max", stats.getMax());
+        return result;
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.client.exception.WebhookClientException;
+import io.barracks.webhookservice.manager.exception.BulkheadFullException;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+public class Bulkhead {
+
+    public enum Priority {
+        HIGH, NORMAL
+    }
+
+    private static final int DEFAULT_PRIORITY_WEIGHT = 4;
+
+    @Getter
+    private final String name;
+
+    private final AdaptiveLimit limit;
+
+    private final int maxQueuedCalls;
+
+    private final int priorityWeight;
+
+    private final Executor executor;
+
+    private final Deque<QueuedCall> highPriorityQueue = new ArrayDeque<>();
+
+    private final Deque<QueuedCall> normalPriorityQueue = new ArrayDeque<>();
+
+    private int activeCalls;
+
+    private int highPriorityStreak;
+
+    public Bulkhead(String name, int maxConcurrentCalls, int maxQueuedCalls) {
+        this(name, AdaptiveLimit.fixed(maxConcurrentCalls), maxQueuedCalls, DEFAULT_PRIORITY_WEIGHT);
+    }
+
+    public Bulkhead(String name, AdaptiveLimit limit, int maxQueuedCalls) {
+        this(name, limit, maxQueuedCalls, DEFAULT_PRIORITY_WEIGHT);
+    }
+
+    public Bulkhead(String name, AdaptiveLimit limit, int maxQueuedCalls, int priorityWeight) {
+        this(name, limit, maxQueuedCalls, priorityWeight, Runnable::run);
+    }
+
+    public Bulkhead(String name, AdaptiveLimit limit, int maxQueuedCalls, int priorityWeight, Executor executor) {
+        this.name = name;
+        this.limit = limit;
+        this.maxQueuedCalls = maxQueuedCalls;
+        this.priorityWeight = priorityWeight;
+        this.executor = executor;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        return submit(Priority.NORMAL, call);
+    }
+
+    public <T> CompletableFuture<T> submit(Priority priority, Supplier<CompletableFuture<T>> call) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final QueuedCall task = new QueuedCall(
+                () -> execute(call, result),
+                () -> result.completeExceptionally(new BulkheadFullException(name))
+        );
+        final QueuedCall rejected;
+        synchronized (this) {
+            if (activeCalls < limit.getLimit()) {
+                activeCalls++;
+                rejected = null;
+            } else if (highPriorityQueue.size() + normalPriorityQueue.size() < maxQueuedCalls) {
+                queueOf(priority).add(task);
+                return result;
+            } else if (priority == Priority.HIGH && !normalPriorityQueue.isEmpty()) {
+                rejected = normalPriorityQueue.pollLast();
+                highPriorityQueue.add(task);
+            } else {
+                rejected = task;
+            }
+        }
+        if (rejected != null) {
+            rejected.reject.run();
+        } else {
+            task.run.run();
+        }
+        return result;
+    }
+
+    public synchronized int getActiveCalls() {
+        return activeCalls;
+    }
+
+    public synchronized int getQueuedCalls() {
+        return highPriorityQueue.size() + normalPriorityQueue.size();
+    }
+
+    public synchronized int getQueuedCalls(Priority priority) {
+        return queueOf(priority).size();
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    private <T> void execute(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result) {
+        final long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((value, throwable) -> {
+            release(System.nanoTime() - start, throwable != null && WebhookClientException.isRetryable(throwable));
+            if (throwable == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+            }
+        });
+    }
+
+    private void release(long rttNanos, boolean dropped) {
+        final List<Runnable> next = new ArrayList<>(1);
+        synchronized (this) {
+            limit.onSample(rttNanos, activeCalls, dropped);
+            activeCalls--;
+            while (activeCalls < limit.getLimit() && (!highPriorityQueue.isEmpty() || !normalPriorityQueue.isEmpty())) {
+                next.add(pollNext().run);
+                activeCalls++;
+            }
+        }
+        next.forEach(this::start);
+    }
+
+    private void start(Runnable call) {
+        try {
+            executor.execute(call);
+        } catch (RejectedExecutionException e) {
+            call.run();
+        }
+    }
+
+    private QueuedCall pollNext() {
+        if (!highPriorityQueue.isEmpty() && (normalPriorityQueue.isEmpty() || highPriorityStreak < priorityWeight)) {
+            highPriorityStreak++;
+            return highPriorityQueue.poll();
+        }
+        highPriorityStreak = 0;
+        return normalPriorityQueue.poll();
+    }
+
+    private Deque<QueuedCall> queueOf(Priority priority) {
+        return priority == Priority.HIGH ? highPriorityQueue : normalPriorityQueue;
+    }
+
+    private static class QueuedCall {
+
+        private final Runnable run;
+
+        private final Runnable reject;
+
+        QueuedCall(Runnable run, Runnable reject) {
+            this.run = run;
+            this.reject = reject;
+        }
+
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Component
+public class BulkheadRegistry {
+
+    private final boolean adaptive;
+
+    private final int minConcurrentCalls;
+
+    private final int initialConcurrentCalls;
+
+    private final int maxConcurrentCalls;
+
+    private final int maxQueuedCalls;
+
+    private final int priorityWeight;
+
+    private final Executor executor;
+
+    private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BulkheadRegistry(
+            @Value("${io.barracks.webhook.bulkhead.adaptive}") boolean adaptive,
+            @Value("${io.barracks.webhook.bulkhead.minconcurrentcalls}") int minConcurrentCalls,
+            @Value("${io.barracks.webhook.bulkhead.initialconcurrentcalls}") int initialConcurrentCalls,
+            @Value("${io.barracks.webhook.bulkhead.maxconcurrentcalls}") int maxConcurrentCalls,
+            @Value("${io.barracks.webhook.bulkhead.maxqueuedcalls}") int maxQueuedCalls,
+            @Value("${io.barracks.webhook.bulkhead.priorityweight}") int priorityWeight,
+            @Value("${io.barracks.webhook.bulkhead.threads}") int threads
+    ) {
+        this(
+                adaptive,
+                minConcurrentCalls,
+                initialConcurrentCalls,
+                maxConcurrentCalls,
+                maxQueuedCalls,
+                priorityWeight,
+                Executors.newFixedThreadPool(threads)
+        );
+    }
+
+    public BulkheadRegistry(int maxConcurrentCalls, int maxQueuedCalls) {
+        this(false, maxConcurrentCalls, maxConcurrentCalls, maxConcurrentCalls, maxQueuedCalls, 4, Runnable::run);
+    }
+
+    BulkheadRegistry(
+            boolean adaptive,
+            int minConcurrentCalls,
+            int initialConcurrentCalls,
+            int maxConcurrentCalls,
+            int maxQueuedCalls,
+            int priorityWeight,
+            Executor executor
+    ) {
+        this.adaptive = adaptive;
+        this.minConcurrentCalls = minConcurrentCalls;
+        this.initialConcurrentCalls = initialConcurrentCalls;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxQueuedCalls = maxQueuedCalls;
+        this.priorityWeight = priorityWeight;
+        this.executor = executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    public Bulkhead forUrl(String url) {
+        return bulkheads.computeIfAbsent(hostOf(url), lane -> new Bulkhead(lane, newLimit(), maxQueuedCalls, priorityWeight, executor));
+    }
+
+    public Collection<Bulkhead> getBulkheads() {
+        return Collections.unmodifiableCollection(bulkheads.values());
+    }
+
+    private AdaptiveLimit newLimit() {
+        return adaptive
+                ? new AdaptiveLimit(minConcurrentCalls, initialConcurrentCalls, maxConcurrentCalls)
+                : AdaptiveLimit.fixed(maxConcurrentCalls);
+    }
+
+    public static String hostOf(String url) {
+        try {
+            final String host = URI.create(url).getHost();
+            return host == null ? url : host;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+}
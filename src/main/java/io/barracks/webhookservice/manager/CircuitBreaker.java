@@ -0,0 +1,230 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.manager.exception.CircuitBreakerOpenException;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    @Getter
+    private final String name;
+
+    private final CircuitBreakerSettings settings;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final boolean[] failedCalls;
+
+    private final boolean[] slowCalls;
+
+    private final Queue<Runnable> parkedCalls = new ArrayDeque<>();
+
+    private State state = State.CLOSED;
+
+    private int recordedCalls;
+
+    private int nextSlot;
+
+    private int failedCallCount;
+
+    private int slowCallCount;
+
+    private int probesInFlight;
+
+    private int successfulProbes;
+
+    public CircuitBreaker(String name, CircuitBreakerSettings settings, ScheduledExecutorService scheduler) {
+        this.name = name;
+        this.settings = settings;
+        this.scheduler = scheduler;
+        this.failedCalls = new boolean[settings.getSlidingWindowSize()];
+        this.slowCalls = new boolean[settings.getSlidingWindowSize()];
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        return submitQueued(started -> {
+            started.run();
+            return call.get();
+        });
+    }
+
+    public <T> CompletableFuture<T> submitQueued(Function<Runnable, CompletableFuture<T>> call) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Runnable task = () -> execute(call, result);
+        synchronized (this) {
+            if (state == State.OPEN || (state == State.HALF_OPEN && probesInFlight >= settings.getPermittedCallsInHalfOpenState())) {
+                if (parkedCalls.size() < settings.getMaxParkedCalls()) {
+                    parkedCalls.add(task);
+                } else {
+                    result.completeExceptionally(new CircuitBreakerOpenException(name));
+                }
+                return result;
+            }
+            if (state == State.HALF_OPEN) {
+                probesInFlight++;
+            }
+        }
+        task.run();
+        return result;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getParkedCalls() {
+        return parkedCalls.size();
+    }
+
+    private <T> void execute(Function<Runnable, CompletableFuture<T>> call, CompletableFuture<T> result) {
+        final AtomicLong start = new AtomicLong(NOT_STARTED);
+        CompletableFuture<T> future;
+        try {
+            future = call.apply(() -> start.compareAndSet(NOT_STARTED, System.nanoTime()));
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((value, throwable) -> {
+            final long started = start.get();
+            if (started == NOT_STARTED) {
+                onSkipped();
+            } else {
+                onResult(throwable == null, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+            if (throwable == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+            }
+        });
+    }
+
+    private void onResult(boolean success, long durationMillis) {
+        final boolean slow = durationMillis >= settings.getSlowCallDurationThreshold();
+        final List<Runnable> released = new ArrayList<>();
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                record(!success, slow);
+                if (isThresholdExceeded()) {
+                    open();
+                }
+            } else if (state == State.HALF_OPEN) {
+                probesInFlight--;
+                if (!success || slow) {
+                    open();
+                } else if (++successfulProbes >= settings.getPermittedCallsInHalfOpenState()) {
+                    close();
+                    released.addAll(parkedCalls);
+                    parkedCalls.clear();
+                }
+            }
+        }
+        released.forEach(Runnable::run);
+    }
+
+    private void onSkipped() {
+        Runnable probe = null;
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                probesInFlight--;
+                if (!parkedCalls.isEmpty()) {
+                    probe = parkedCalls.poll();
+                    probesInFlight++;
+                }
+            }
+        }
+        if (probe != null) {
+            probe.run();
+        }
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (recordedCalls == failedCalls.length) {
+            failedCallCount -= failedCalls[nextSlot] ? 1 : 0;
+            slowCallCount -= slowCalls[nextSlot] ? 1 : 0;
+        } else {
+            recordedCalls++;
+        }
+        failedCalls[nextSlot] = failed;
+        slowCalls[nextSlot] = slow;
+        failedCallCount += failed ? 1 : 0;
+        slowCallCount += slow ? 1 : 0;
+        nextSlot = (nextSlot + 1) % failedCalls.length;
+    }
+
+    private boolean isThresholdExceeded() {
+        return recordedCalls >= settings.getMinimumNumberOfCalls()
+                && (failedCallCount * 100 >= settings.getFailureRateThreshold() * recordedCalls
+                || slowCallCount * 100 >= settings.getSlowCallRateThreshold() * recordedCalls);
+    }
+
+    private void open() {
+        state = State.OPEN;
+        scheduler.schedule(this::halfOpen, settings.getWaitDurationInOpenState(), TimeUnit.MILLISECONDS);
+    }
+
+    private void halfOpen() {
+        final List<Runnable> probes = new ArrayList<>();
+        synchronized (this) {
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            successfulProbes = 0;
+            while (probesInFlight < settings.getPermittedCallsInHalfOpenState() && !parkedCalls.isEmpty()) {
+                probes.add(parkedCalls.poll());
+                probesInFlight++;
+            }
+        }
+        probes.forEach(Runnable::run);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        recordedCalls = 0;
+        nextSlot = 0;
+        failedCallCount = 0;
+        slowCallCount = 0;
+    }
+
+}
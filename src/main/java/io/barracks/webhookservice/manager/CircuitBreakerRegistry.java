@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Component
+public class CircuitBreakerRegistry {
+
+    private final CircuitBreakerSettings settings;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CircuitBreakerRegistry(
+            @Value("${io.barracks.webhook.circuitbreaker.failurerate}") int failureRateThreshold,
+            @Value("${io.barracks.webhook.circuitbreaker.slowcallduration}") long slowCallDurationThreshold,
+            @Value("${io.barracks.webhook.circuitbreaker.slowcallrate}") int slowCallRateThreshold,
+            @Value("${io.barracks.webhook.circuitbreaker.windowsize}") int slidingWindowSize,
+            @Value("${io.barracks.webhook.circuitbreaker.minimumcalls}") int minimumNumberOfCalls,
+            @Value("${io.barracks.webhook.circuitbreaker.opentime}") long waitDurationInOpenState,
+            @Value("${io.barracks.webhook.circuitbreaker.halfopencalls}") int permittedCallsInHalfOpenState,
+            @Value("${io.barracks.webhook.circuitbreaker.maxparkedcalls}") int maxParkedCalls
+    ) {
+        this(CircuitBreakerSettings.builder()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDurationThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .maxParkedCalls(maxParkedCalls)
+                .build());
+    }
+
+    public CircuitBreakerRegistry(CircuitBreakerSettings settings) {
+        this.settings = settings;
+    }
+
+    public CircuitBreaker forUrl(String url) {
+        return circuitBreakers.computeIfAbsent(url, name -> new CircuitBreaker(name, settings, scheduler));
+    }
+
+    public Collection<CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableCollection(circuitBreakers.values());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+}
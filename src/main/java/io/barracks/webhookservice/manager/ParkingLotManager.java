@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.manager.exception.ReplayInProgressException;
+import io.barracks.webhookservice.model.ParkedMessage;
+import io.barracks.webhookservice.model.ReplayStatus;
+import io.barracks.webhookservice.rabbitmq.ParkingLot;
+import io.barracks.webhookservice.rabbitmq.ReplayProgress;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Component
+@Slf4j
+public class ParkingLotManager {
+
+    private final ParkingLot parkingLot;
+
+    private final double defaultReplayRate;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final AtomicReference<ReplayJob> currentReplay = new AtomicReference<>();
+
+    @Autowired
+    public ParkingLotManager(
+            ParkingLot parkingLot,
+            @Value("${io.barracks.webhook.parkinglot.replayrate}") double defaultReplayRate
+    ) {
+        this.parkingLot = parkingLot;
+        this.defaultReplayRate = defaultReplayRate;
+    }
+
+    public long countParkedMessages() {
+        return parkingLot.count();
+    }
+
+    public List<ParkedMessage> getParkedMessages(Optional<String> hookName, int limit) {
+        return parkingLot.browse(hookName, limit);
+    }
+
+    public ReplayStatus replay(Optional<String> hookName, Optional<Long> limit, Optional<Double> rate) {
+        final ReplayJob job = new ReplayJob(hookName, limit.orElse(Long.MAX_VALUE), rate.orElse(defaultReplayRate));
+        final ReplayJob previous = currentReplay.get();
+        if ((previous != null && previous.isRunning()) || !currentReplay.compareAndSet(previous, job)) {
+            throw new ReplayInProgressException();
+        }
+        executor.execute(job);
+        return job.getStatus();
+    }
+
+    public Optional<ReplayStatus> getReplayStatus() {
+        return Optional.ofNullable(currentReplay.get()).map(ReplayJob::getStatus);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private class ReplayJob implements Runnable {
+
+        private final Optional<String> hookName;
+
+        private final long limit;
+
+        private final double rate;
+
+        private final ReplayProgress progress = new ReplayProgress();
+
+        private final Date startedAt = new Date();
+
+        private volatile Date finishedAt;
+
+        private volatile String error;
+
+        ReplayJob(Optional<String> hookName, long limit, double rate) {
+            this.hookName = hookName;
+            this.limit = limit;
+            this.rate = rate;
+        }
+
+        @Override
+        public void run() {
+            try {
+                parkingLot.replay(hookName, limit, rate, progress);
+            } catch (Exception e) {
+                log.error("Parking lot replay failed.", e);
+                error = e.getMessage();
+            } finally {
+                finishedAt = new Date();
+            }
+        }
+
+        boolean isRunning() {
+            return finishedAt == null;
+        }
+
+        ReplayStatus getStatus() {
+            return ReplayStatus.builder()
+                    .running(isRunning())
+                    .hookName(hookName.orElse(null))
+                    .limit(limit)
+                    .rate(rate)
+                    .scanned(progress.getScanned())
+                    .replayed(progress.getReplayed())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .build();
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.manager.exception.RateLimitExceededException;
+import io.barracks.webhookservice.model.RateLimit;
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+public class RateLimiter {
+
+    private static final long MAX_CAPACITY = Long.MAX_VALUE / 4;
+
+    @Getter
+    private final String name;
+
+    private final long maxDelay;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Executor executor;
+
+    private final AtomicReference<RateLimit> limit;
+
+    private final AtomicLong theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+
+    private final AtomicInteger deferredCalls = new AtomicInteger();
+
+    public RateLimiter(String name, RateLimit limit, long maxDelay, ScheduledExecutorService scheduler, Executor executor) {
+        this.name = name;
+        this.limit = new AtomicReference<>(limit);
+        this.maxDelay = maxDelay;
+        this.scheduler = scheduler;
+        this.executor = executor;
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        final long delay = reserve(System.nanoTime());
+        if (delay <= 0) {
+            return execute(call);
+        }
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        if (delay > TimeUnit.MILLISECONDS.toNanos(maxDelay)) {
+            result.completeExceptionally(new RateLimitExceededException(name, maxDelay));
+            return result;
+        }
+        deferredCalls.incrementAndGet();
+        scheduler.schedule(() -> executor.execute(() -> {
+            deferredCalls.decrementAndGet();
+            execute(call).whenComplete((value, throwable) -> {
+                if (throwable == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                }
+            });
+        }), delay, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    public RateLimit getLimit() {
+        return limit.get();
+    }
+
+    public void setLimit(RateLimit limit) {
+        this.limit.set(limit);
+    }
+
+    public int getDeferredCalls() {
+        return deferredCalls.get();
+    }
+
+    long reserve(long now) {
+        final RateLimit current = limit.get();
+        if (current.isUnlimited()) {
+            return 0;
+        }
+        final long interval = getInterval(current.getRate());
+        final int burst = Math.max(1, current.getBurst());
+        final long capacity = interval > MAX_CAPACITY / burst ? MAX_CAPACITY : interval * burst;
+        final long maxDelayNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(maxDelay), MAX_CAPACITY);
+        while (true) {
+            final long tat = theoreticalArrivalTime.get();
+            final long backlog = Math.max(tat - now, 0);
+            final long delay = backlog + interval - capacity;
+            if (delay > maxDelayNanos || theoreticalArrivalTime.compareAndSet(tat, now + backlog + interval)) {
+                return delay;
+            }
+        }
+    }
+
+    private static long getInterval(double rate) {
+        return Math.min((long) (TimeUnit.SECONDS.toNanos(1) / rate), MAX_CAPACITY);
+    }
+
+    private static <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        try {
+            return call.get();
+        } catch (Exception e) {
+            final CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+}
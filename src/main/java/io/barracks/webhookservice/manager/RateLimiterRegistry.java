@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.model.Hook;
+import io.barracks.webhookservice.model.RateLimit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Component
+public class RateLimiterRegistry {
+
+    private final RateLimit defaultLimit;
+
+    private final boolean perHost;
+
+    private final long maxDelay;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService executor;
+
+    private final ConcurrentMap<String, RateLimit> overrides = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, RateLimiter> rateLimiters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RateLimiterRegistry(
+            @Value("${io.barracks.webhook.ratelimit.rate}") double rate,
+            @Value("${io.barracks.webhook.ratelimit.burst}") int burst,
+            @Value("${io.barracks.webhook.ratelimit.perhost}") boolean perHost,
+            @Value("${io.barracks.webhook.ratelimit.limits}") String[] limits,
+            @Value("${io.barracks.webhook.ratelimit.maxdelay}") long maxDelay,
+            @Value("${io.barracks.webhook.ratelimit.threads}") int threads
+    ) {
+        this(
+                RateLimit.builder().rate(rate).burst(burst).build(),
+                perHost,
+                maxDelay,
+                Executors.newSingleThreadScheduledExecutor(),
+                Executors.newFixedThreadPool(threads)
+        );
+        for (String limit : limits) {
+            if (limit.trim().isEmpty()) {
+                continue;
+            }
+            final String[] parts = limit.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Rate limits must be declared as key:rate:burst, got '" + limit + "'");
+            }
+            overrides.put(parts[0], RateLimit.builder()
+                    .rate(Double.parseDouble(parts[1]))
+                    .burst(Integer.parseInt(parts[2]))
+                    .build());
+        }
+    }
+
+    RateLimiterRegistry(RateLimit defaultLimit, boolean perHost, long maxDelay, ScheduledExecutorService scheduler, ExecutorService executor) {
+        this.defaultLimit = defaultLimit;
+        this.perHost = perHost;
+        this.maxDelay = maxDelay;
+        this.scheduler = scheduler;
+        this.executor = executor;
+    }
+
+    public RateLimiter forHook(Hook hook) {
+        final String key = perHost || hook.getName() == null ? BulkheadRegistry.hostOf(hook.getUrl()) : hook.getName();
+        return rateLimiters.computeIfAbsent(key, name -> new RateLimiter(name, overrides.getOrDefault(name, defaultLimit), maxDelay, scheduler, executor));
+    }
+
+    public RateLimit setLimit(String key, RateLimit limit) {
+        overrides.put(key, limit);
+        rateLimiters.computeIfPresent(key, (name, rateLimiter) -> {
+            rateLimiter.setLimit(limit);
+            return rateLimiter;
+        });
+        return limit;
+    }
+
+    public RateLimit resetLimit(String key) {
+        overrides.remove(key);
+        rateLimiters.computeIfPresent(key, (name, rateLimiter) -> {
+            rateLimiter.setLimit(defaultLimit);
+            return rateLimiter;
+        });
+        return defaultLimit;
+    }
+
+    public RateLimit getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public Map<String, RateLimit> getLimits() {
+        final Map<String, RateLimit> limits = new TreeMap<>(overrides);
+        rateLimiters.forEach((name, rateLimiter) -> limits.put(name, rateLimiter.getLimit()));
+        return limits;
+    }
+
+    public Map<String, Integer> getDeferredCalls() {
+        final Map<String, Integer> deferredCalls = new TreeMap<>();
+        rateLimiters.forEach((name, rateLimiter) -> deferredCalls.put(name, rateLimiter.getDeferredCalls()));
+        return deferredCalls;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+}
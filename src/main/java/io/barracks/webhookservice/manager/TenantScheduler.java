@@ -0,0 +1,256 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@Component
+public class TenantScheduler {
+
+    public static final String UNKNOWN_TENANT = "unknown";
+
+    private final int maxInFlight;
+
+    private final int maxInFlightPerTenant;
+
+    private final int defaultWeight;
+
+    private final Map<String, Integer> weights;
+
+    private final ConcurrentMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    private final Queue<Tenant> activeTenants = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger backlog = new AtomicInteger();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    @Autowired
+    public TenantScheduler(
+            @Value("${io.barracks.webhook.tenants.maxinflight}") int maxInFlight,
+            @Value("${io.barracks.webhook.tenants.maxinflightpertenant}") int maxInFlightPerTenant,
+            @Value("${io.barracks.webhook.tenants.defaultweight}") int defaultWeight,
+            @Value("${io.barracks.webhook.tenants.weights}") String[] weights
+    ) {
+        this.maxInFlight = maxInFlight;
+        this.maxInFlightPerTenant = maxInFlightPerTenant > 0 ? maxInFlightPerTenant : Integer.MAX_VALUE;
+        this.defaultWeight = Math.max(1, defaultWeight);
+        final Map<String, Integer> parsed = new HashMap<>();
+        for (String weight : weights) {
+            if (weight.trim().isEmpty()) {
+                continue;
+            }
+            final int separator = weight.lastIndexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Tenant weights must be declared as userId:weight, got '" + weight + "'");
+            }
+            parsed.put(weight.substring(0, separator).trim(), Math.max(1, Integer.parseInt(weight.substring(separator + 1).trim())));
+        }
+        this.weights = Collections.unmodifiableMap(parsed);
+    }
+
+    public boolean isEnabled() {
+        return maxInFlight > 0;
+    }
+
+    public <T> CompletableFuture<T> submit(String tenantId, Supplier<CompletableFuture<T>> call) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        if (!isEnabled()) {
+            execute(null, call, result);
+            return result;
+        }
+        final String id = tenantId == null ? UNKNOWN_TENANT : tenantId;
+        Tenant tenant = tenants.get(id);
+        if (tenant == null) {
+            tenant = tenants.computeIfAbsent(id, key -> new Tenant(weights.getOrDefault(key, defaultWeight)));
+        }
+        if (backlog.get() == 0 && tryAcquire(tenant)) {
+            execute(tenant, call, result);
+            return result;
+        }
+        final Tenant owner = tenant;
+        backlog.incrementAndGet();
+        tenant.backlog.incrementAndGet();
+        tenant.queue.add(() -> execute(owner, call, result));
+        activate(tenant);
+        drain();
+        return result;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getBacklog() {
+        return backlog.get();
+    }
+
+    public Map<String, Integer> getBacklogByTenant() {
+        final Map<String, Integer> result = new TreeMap<>();
+        tenants.forEach((id, tenant) -> {
+            final int size = tenant.backlog.get();
+            if (size > 0) {
+                result.put(id, size);
+            }
+        });
+        return result;
+    }
+
+    private void drain() {
+        while (!activeTenants.isEmpty() && inFlight.get() < maxInFlight && draining.compareAndSet(false, true)) {
+            try {
+                Tenant tenant;
+                while ((tenant = activeTenants.peek()) != null && tryAcquire(tenant)) {
+                    final Runnable task = tenant.queue.poll();
+                    if (task == null) {
+                        release(tenant);
+                        deactivate(tenant);
+                        continue;
+                    }
+                    backlog.decrementAndGet();
+                    tenant.backlog.decrementAndGet();
+                    if (tenant.deficit <= 0) {
+                        tenant.deficit += tenant.weight;
+                    }
+                    if (--tenant.deficit <= 0) {
+                        activeTenants.poll();
+                        activeTenants.add(tenant);
+                    }
+                    task.run();
+                }
+                if (tenant != null && tenant.inFlight.get() >= maxInFlightPerTenant) {
+                    deactivate(tenant);
+                }
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private void activate(Tenant tenant) {
+        if (tenant.active.compareAndSet(false, true)) {
+            activeTenants.add(tenant);
+        }
+    }
+
+    private void deactivate(Tenant tenant) {
+        activeTenants.poll();
+        tenant.deficit = 0;
+        tenant.active.set(false);
+        if (!tenant.queue.isEmpty() && tenant.inFlight.get() < maxInFlightPerTenant) {
+            activate(tenant);
+        }
+    }
+
+    private boolean tryAcquire(Tenant tenant) {
+        while (true) {
+            final int current = tenant.inFlight.get();
+            if (current >= maxInFlightPerTenant) {
+                return false;
+            }
+            if (tenant.inFlight.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= maxInFlight) {
+                tenant.inFlight.decrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release(Tenant tenant) {
+        inFlight.decrementAndGet();
+        tenant.inFlight.decrementAndGet();
+    }
+
+    private <T> void execute(Tenant tenant, Supplier<CompletableFuture<T>> call, CompletableFuture<T> result) {
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((value, throwable) -> {
+            if (tenant != null) {
+                release(tenant);
+                if (!tenant.queue.isEmpty()) {
+                    activate(tenant);
+                }
+                drain();
+            }
+            if (throwable == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+            }
+        });
+    }
+
+    private static class Tenant {
+
+        private final int weight;
+
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger backlog = new AtomicInteger();
+
+        private final AtomicBoolean active = new AtomicBoolean();
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private int deficit;
+
+        Tenant(int weight) {
+            this.weight = weight;
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.model.Hook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Component
+public class WebhookBatcher {
+
+    private final Set<String> batchedHooks;
+
+    private final int maxBatchSize;
+
+    private final long maxBatchDelay;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentMap<String, Batch> batches = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WebhookBatcher(
+            @Value("${io.barracks.webhook.batching.hooks}") String[] batchedHooks,
+            @Value("${io.barracks.webhook.batching.maxsize}") int maxBatchSize,
+            @Value("${io.barracks.webhook.batching.maxdelay}") long maxBatchDelay
+    ) {
+        this(batchedHooks, maxBatchSize, maxBatchDelay, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    WebhookBatcher(String[] batchedHooks, int maxBatchSize, long maxBatchDelay, ScheduledExecutorService scheduler) {
+        this.batchedHooks = new HashSet<>(Arrays.asList(batchedHooks));
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = maxBatchDelay;
+        this.scheduler = scheduler;
+    }
+
+    public boolean isBatched(Hook hook) {
+        return batchedHooks.contains(hook.getName());
+    }
+
+    public <T> CompletableFuture<Void> add(String key, T event, Function<List<T>, CompletableFuture<Void>> sender) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final List<Batch> created = new ArrayList<>(1);
+        final List<Batch> full = new ArrayList<>(1);
+        batches.compute(key, (ignored, existing) -> {
+            final Batch batch = existing == null ? new Batch(sender) : existing;
+            batch.add(event, result);
+            if (batch.size() >= maxBatchSize) {
+                full.add(batch);
+                return null;
+            }
+            if (existing == null) {
+                created.add(batch);
+            }
+            return batch;
+        });
+        created.forEach(batch -> batch.timer = scheduler.schedule(() -> batch.expire(key), maxBatchDelay, TimeUnit.MILLISECONDS));
+        full.forEach(Batch::send);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private class Batch {
+
+        private final Function<List<Object>, CompletableFuture<Void>> sender;
+
+        private final List<Object> events = new ArrayList<>();
+
+        private final List<CompletableFuture<Void>> results = new ArrayList<>();
+
+        private volatile ScheduledFuture<?> timer;
+
+        @SuppressWarnings("unchecked")
+        <T> Batch(Function<List<T>, CompletableFuture<Void>> sender) {
+            this.sender = (Function<List<Object>, CompletableFuture<Void>>) (Function<?, ?>) sender;
+        }
+
+        void add(Object event, CompletableFuture<Void> result) {
+            events.add(event);
+            results.add(result);
+        }
+
+        int size() {
+            return events.size();
+        }
+
+        void send() {
+            final ScheduledFuture<?> scheduled = timer;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            CompletableFuture<Void> delivery;
+            try {
+                delivery = sender.apply(events);
+            } catch (Exception e) {
+                delivery = new CompletableFuture<>();
+                delivery.completeExceptionally(e);
+            }
+            delivery.whenComplete((ignored, throwable) -> results.forEach(result -> {
+                if (throwable == null) {
+                    result.complete(null);
+                } else {
+                    result.completeExceptionally(throwable);
+                }
+            }));
+        }
+
+        private void expire(String key) {
+            if (batches.remove(key, this)) {
+                send();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.model.Hook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Component
+public class WebhookCoalescer {
+
+    private final Set<String> coalescedHooks;
+
+    private final long window;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WebhookCoalescer(
+            @Value("${io.barracks.webhook.coalescing.hooks}") String[] coalescedHooks,
+            @Value("${io.barracks.webhook.coalescing.window}") long window
+    ) {
+        this(coalescedHooks, window, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    WebhookCoalescer(String[] coalescedHooks, long window, ScheduledExecutorService scheduler) {
+        this.coalescedHooks = new HashSet<>(Arrays.asList(coalescedHooks));
+        this.window = window;
+        this.scheduler = scheduler;
+    }
+
+    public boolean isCoalesced(Hook hook) {
+        return coalescedHooks.contains(hook.getName());
+    }
+
+    public CompletableFuture<Void> submit(String key, Supplier<CompletableFuture<Void>> delivery) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final List<CompletableFuture<Void>> superseded = new ArrayList<>(1);
+        final List<Pending> created = new ArrayList<>(1);
+        pending.compute(key, (ignored, existing) -> {
+            if (existing == null) {
+                final Pending entry = new Pending(delivery, result);
+                created.add(entry);
+                return entry;
+            }
+            superseded.add(existing.result);
+            existing.delivery = delivery;
+            existing.result = result;
+            return existing;
+        });
+        created.forEach(entry -> scheduler.schedule(() -> flush(key, entry), window, TimeUnit.MILLISECONDS));
+        superseded.forEach(future -> future.complete(null));
+        return result;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void flush(String key, Pending entry) {
+        if (!pending.remove(key, entry)) {
+            return;
+        }
+        CompletableFuture<Void> delivery;
+        try {
+            delivery = entry.delivery.get();
+        } catch (Exception e) {
+            delivery = new CompletableFuture<>();
+            delivery.completeExceptionally(e);
+        }
+        delivery.whenComplete((ignored, throwable) -> {
+            if (throwable == null) {
+                entry.result.complete(null);
+            } else {
+                entry.result.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+            }
+        });
+    }
+
+    private static class Pending {
+
+        private Supplier<CompletableFuture<Void>> delivery;
+
+        private CompletableFuture<Void> result;
+
+        Pending(Supplier<CompletableFuture<Void>> delivery, CompletableFuture<Void> result) {
+            this.delivery = delivery;
+            this.result = result;
+        }
+
+    }
+
+}
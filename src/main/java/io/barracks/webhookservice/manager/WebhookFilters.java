@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.barracks.webhookservice.model.DeviceEvent;
+import io.barracks.webhookservice.model.DeviceRequest;
+import io.barracks.webhookservice.model.Hook;
+import io.barracks.webhookservice.model.Package;
+import io.barracks.webhookservice.model.ResolvedVersions;
+import io.barracks.webhookservice.model.Version;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+@Component
+public class WebhookFilters {
+
+    private static final String PACKAGE_PREFIX = "package=";
+
+    private static final String DATA_PREFIX = "data.";
+
+    private final Map<String, Predicate<DeviceEvent>> filters;
+
+    @Autowired
+    public WebhookFilters(@Value("${io.barracks.webhook.filters}") String[] rules) {
+        final Map<String, Predicate<DeviceEvent>> compiled = new HashMap<>();
+        for (String rule : rules) {
+            if (rule.trim().isEmpty()) {
+                continue;
+            }
+            final int separator = rule.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Webhook filters must be declared as hookName:predicate[&predicate...], got '" + rule + "'");
+            }
+            compiled.merge(rule.substring(0, separator).trim(), compile(rule.substring(separator + 1)), Predicate::or);
+        }
+        this.filters = Collections.unmodifiableMap(compiled);
+    }
+
+    public boolean isFiltered(Hook hook) {
+        return hook.getName() != null && filters.containsKey(hook.getName());
+    }
+
+    public boolean accepts(Hook hook, DeviceEvent deviceEvent) {
+        final Predicate<DeviceEvent> filter = hook.getName() == null ? null : filters.get(hook.getName());
+        return filter == null || (deviceEvent != null && filter.test(deviceEvent));
+    }
+
+    static Predicate<DeviceEvent> compile(String expression) {
+        Predicate<DeviceEvent> result = event -> true;
+        for (String predicate : expression.split("&")) {
+            result = result.and(compilePredicate(predicate.trim()));
+        }
+        return result;
+    }
+
+    private static Predicate<DeviceEvent> compilePredicate(String predicate) {
+        if ("changed".equals(predicate)) {
+            return event -> event.getResponse() != null && !isEmpty(event.getResponse().getChanged());
+        }
+        if ("available".equals(predicate)) {
+            return event -> event.getResponse() != null && !isEmpty(event.getResponse().getAvailable());
+        }
+        if (predicate.startsWith(PACKAGE_PREFIX)) {
+            final Set<String> references = new HashSet<>(Arrays.asList(predicate.substring(PACKAGE_PREFIX.length()).split("\\|")));
+            return event -> referencesOf(event).anyMatch(references::contains);
+        }
+        if (predicate.startsWith(DATA_PREFIX) && predicate.indexOf('=') > DATA_PREFIX.length()) {
+            final String field = predicate.substring(DATA_PREFIX.length(), predicate.indexOf('='));
+            final String value = predicate.substring(predicate.indexOf('=') + 1);
+            return event -> {
+                final JsonNode node = event.getRequest() == null ? null : event.getRequest().getCustomClientData().get(field);
+                return node != null && node.isValueNode() && value.equals(node.asText());
+            };
+        }
+        throw new IllegalArgumentException("Unknown webhook filter predicate '" + predicate + "'");
+    }
+
+    private static Stream<String> referencesOf(DeviceEvent event) {
+        final DeviceRequest request = event.getRequest();
+        final ResolvedVersions response = event.getResponse();
+        final Stream<String> packages = request == null || request.getPackages() == null
+                ? Stream.empty()
+                : request.getPackages().stream().map(Package::getReference);
+        final Stream<String> versions = response == null
+                ? Stream.empty()
+                : Stream.of(response.getChanged(), response.getAvailable())
+                .filter(list -> list != null)
+                .flatMap(List::stream)
+                .map(Version::getReference);
+        return Stream.concat(packages, versions);
+    }
+
+    private static boolean isEmpty(Collection<?> collection) {
+        return collection == null || collection.isEmpty();
+    }
+
+}
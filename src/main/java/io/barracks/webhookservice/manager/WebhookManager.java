@@ -25,29 +25,151 @@
 package io.barracks.webhookservice.manager;
 
 import io.barracks.webhookservice.client.WebhookClient;
+import io.barracks.webhookservice.model.DeviceChangeEvent;
 import io.barracks.webhookservice.model.DeviceChangeEventHook;
 import io.barracks.webhookservice.model.DeviceEvent;
 import io.barracks.webhookservice.model.DeviceEventHook;
+import io.barracks.webhookservice.model.DeviceRequest;
+import io.barracks.webhookservice.model.Hook;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
 
 @Component
+@Slf4j
 public class WebhookManager {
 
     private WebhookClient webhookClient;
 
+    private BulkheadRegistry bulkheadRegistry;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private WebhookBatcher webhookBatcher;
+
+    private RateLimiterRegistry rateLimiterRegistry;
+
+    private WebhookCoalescer webhookCoalescer;
+
+    private WebhookFilters webhookFilters;
+
+    private TenantScheduler tenantScheduler;
+
     @Autowired
-    public WebhookManager(WebhookClient webhookClient) {
+    public WebhookManager(
+            WebhookClient webhookClient,
+            BulkheadRegistry bulkheadRegistry,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            WebhookBatcher webhookBatcher,
+            RateLimiterRegistry rateLimiterRegistry,
+            WebhookCoalescer webhookCoalescer,
+            WebhookFilters webhookFilters,
+            TenantScheduler tenantScheduler
+    ) {
         this.webhookClient = webhookClient;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.webhookBatcher = webhookBatcher;
+        this.rateLimiterRegistry = rateLimiterRegistry;
+        this.webhookCoalescer = webhookCoalescer;
+        this.webhookFilters = webhookFilters;
+        this.tenantScheduler = tenantScheduler;
+    }
+
+    public CompletableFuture<Void> postDeviceEventHook(DeviceEventHook deviceEventHook) {
+        final Hook hook = deviceEventHook.getHook();
+        if (webhookFilters.isFiltered(hook) && !webhookFilters.accepts(hook, deviceEventHook.getDeviceEvent())) {
+            log.debug("Event for hook " + hook.getName() + " does not match its filters, skipping it.");
+            return CompletableFuture.completedFuture(null);
+        }
+        if (webhookCoalescer.isCoalesced(hook) && deviceEventHook.getDeviceEvent() != null) {
+            final DeviceRequest request = deviceEventHook.getDeviceEvent().getRequest();
+            if (request != null && request.getUnitId() != null) {
+                return webhookCoalescer.submit(
+                        hook.getName() + ":" + hook.getUrl() + ":" + request.getUnitId(),
+                        () -> sendDeviceEventHook(deviceEventHook)
+                );
+            }
+        }
+        return sendDeviceEventHook(deviceEventHook);
+    }
+
+    private CompletableFuture<Void> sendDeviceEventHook(DeviceEventHook deviceEventHook) {
+        final Hook hook = deviceEventHook.getHook();
+        if (webhookBatcher.isBatched(hook)) {
+            return webhookBatcher.add(
+                    "deviceEvent:" + hook.getUrl(),
+                    deviceEventHook.getDeviceEvent(),
+                    events -> deliver(
+                            hook,
+                            tenantOf(events.isEmpty() ? null : events.get(0)),
+                            Bulkhead.Priority.NORMAL,
+                            () -> webhookClient.postEvents(hook.getUrl(), events)
+                    )
+            );
+        }
+        return deliver(
+                hook,
+                deviceEventHook.getUserId(),
+                Bulkhead.Priority.NORMAL,
+                () -> webhookClient.postDeviceEvent(deviceEventHook)
+        );
+    }
+
+    public CompletableFuture<Void> postDeviceChangeEventHook(DeviceChangeEventHook deviceChangeEventHook) {
+        final Hook hook = deviceChangeEventHook.getHook();
+        if (webhookBatcher.isBatched(hook)) {
+            return webhookBatcher.add(
+                    "deviceChangeEvent:" + hook.getUrl(),
+                    deviceChangeEventHook.getDeviceChangeEvent(),
+                    events -> deliver(
+                            hook,
+                            tenantOf(events.isEmpty() ? null : events.get(0)),
+                            Bulkhead.Priority.HIGH,
+                            () -> webhookClient.postEvents(hook.getUrl(), events)
+                    )
+            );
+        }
+        return deliver(
+                hook,
+                deviceChangeEventHook.getUserId(),
+                Bulkhead.Priority.HIGH,
+                () -> webhookClient.postDeviceChangeEvent(deviceChangeEventHook)
+        );
+    }
+
+    private CompletableFuture<Void> deliver(Hook hook, String tenant, Bulkhead.Priority priority, Supplier<CompletableFuture<Void>> delivery) {
+        final Bulkhead bulkhead = bulkheadRegistry.forUrl(hook.getUrl());
+        final CircuitBreaker circuitBreaker = circuitBreakerRegistry.forUrl(hook.getUrl());
+        final Supplier<CompletableFuture<Void>> guardedDelivery = () -> circuitBreaker.submitQueued(started -> bulkhead.submit(priority,
+                () -> tenantScheduler.submit(tenant, () -> {
+                    started.run();
+                    return delivery.get();
+                })
+        ));
+        return rateLimiterRegistry.forHook(hook).submit(guardedDelivery);
     }
 
-    public void postDeviceEventHook(DeviceEventHook deviceEventHook) {
-        webhookClient.postDeviceEvent(deviceEventHook);
+    private static String tenantOf(DeviceEvent deviceEvent) {
+        if (deviceEvent == null || deviceEvent.getRequest() == null) {
+            return null;
+        }
+        return deviceEvent.getRequest().getUserId();
     }
 
-    public void postDeviceChangeEventHook(DeviceChangeEventHook deviceChangeEventHook) {
-        webhookClient.postDeviceChangeEvent(deviceChangeEventHook);
+    private static String tenantOf(DeviceChangeEvent deviceChangeEvent) {
+        if (deviceChangeEvent == null) {
+            return null;
+        }
+        final String tenant = tenantOf(deviceChangeEvent.getDeviceEvent());
+        if (tenant == null && deviceChangeEvent.getOldRequest() != null) {
+            return deviceChangeEvent.getOldRequest().getUserId();
+        }
+        return tenant;
     }
 
 }
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.metrics;
+
+import io.barracks.webhookservice.manager.BulkheadRegistry;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class WebhookMetrics implements PublicMetrics {
+
+    private static final int MAX_STATUS_CODE = 599;
+
+    private static final String UNKNOWN_HOOK = "unknown";
+
+    private final AtomicInteger inFlightMessages = new AtomicInteger();
+
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+
+    private final LatencyHistogram processingTime = new LatencyHistogram();
+
+    private final LatencyHistogram roundTripTime = new LatencyHistogram();
+
+    private final ConcurrentMap<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, HostMetrics> hostsByUrl = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, HookMetrics> hooks = new ConcurrentHashMap<>();
+
+    public long messageReceived() {
+        inFlightMessages.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void messageProcessed(String hookName, long receivedAt, Date publishedAt, boolean success) {
+        inFlightMessages.decrementAndGet();
+        processingTime.record(System.nanoTime() - receivedAt);
+        if (publishedAt != null) {
+            queueLatency.record(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - publishedAt.getTime()));
+        }
+        final String name = hookName == null ? UNKNOWN_HOOK : hookName;
+        HookMetrics hook = hooks.get(name);
+        if (hook == null) {
+            hook = hooks.computeIfAbsent(name, key -> new HookMetrics());
+        }
+        (success ? hook.successes : hook.errors).incrementAndGet();
+    }
+
+    public long requestStarted(String url) {
+        getHostMetrics(url).inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void requestCompleted(String url, long startedAt, int statusCode) {
+        final long duration = System.nanoTime() - startedAt;
+        final HostMetrics host = getHostMetrics(url);
+        host.inFlight.decrementAndGet();
+        host.roundTripTime.record(duration);
+        host.statusCodes.incrementAndGet(statusCode > 0 && statusCode <= MAX_STATUS_CODE ? statusCode : 0);
+        roundTripTime.record(duration);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        final List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("webhook.messages.inflight", inFlightMessages.get()));
+        addHistogram(metrics, "webhook.queue.latency", queueLatency);
+        addHistogram(metrics, "webhook.processing.time", processingTime);
+        addHistogram(metrics, "webhook.http.roundtrip", roundTripTime);
+        hosts.forEach((name, host) -> {
+            final String prefix = "webhook.host." + name;
+            metrics.add(new Metric<>(prefix + ".inflight", host.inFlight.get()));
+            addHistogram(metrics, prefix + ".roundtrip", host.roundTripTime);
+            for (int code = 0; code <= MAX_STATUS_CODE; code++) {
+                final long count = host.statusCodes.get(code);
+                if (count > 0) {
+                    metrics.add(new Metric<>(prefix + ".status." + (code == 0 ? "error" : String.valueOf(code)), count));
+                }
+            }
+        });
+        hooks.forEach((name, hook) -> {
+            metrics.add(new Metric<>("webhook.hook." + name + ".success", hook.successes.get()));
+            metrics.add(new Metric<>("webhook.hook." + name + ".error", hook.errors.get()));
+        });
+        return metrics;
+    }
+
+    private HostMetrics getHostMetrics(String url) {
+        final HostMetrics host = hostsByUrl.get(url);
+        if (host != null) {
+            return host;
+        }
+        return hostsByUrl.computeIfAbsent(url, key -> hosts.computeIfAbsent(BulkheadRegistry.hostOf(key), name -> new HostMetrics()));
+    }
+
+    private void addHistogram(List<Metric<?>> metrics, String name, LatencyHistogram histogram) {
+        metrics.add(new Metric<>(name + ".count", histogram.getCount()));
+        metrics.add(new Metric<>(name + ".p50", histogram.getPercentileMillis(50)));
+        metrics.add(new Metric<>(name + ".p95", histogram.getPercentileMillis(95)));
+        metrics.add(new Metric<>(name + ".p99", histogram.getPercentileMillis(99)));
+        metrics.add(new Metric<>(name + ".max", histogram.getMaxMillis()));
+    }
+
+    private static class HostMetrics {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final LatencyHistogram roundTripTime = new LatencyHistogram();
+
+        private final AtomicLongArray statusCodes = new AtomicLongArray(MAX_STATUS_CODE + 1);
+    }
+
+    private static class HookMetrics {
+
+        private final AtomicLong successes = new AtomicLong();
+
+        private final AtomicLong errors = new AtomicLong();
+    }
+
+}
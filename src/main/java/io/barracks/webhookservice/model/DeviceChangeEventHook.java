@@ -25,6 +25,7 @@
 package io.barracks.webhookservice.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
@@ -32,8 +33,8 @@ import lombok.*;
 @Builder(toBuilder = true)
 @AllArgsConstructor
 @Getter
-@ToString
-@EqualsAndHashCode
+@ToString(exclude = "rawDeviceChangeEvent")
+@EqualsAndHashCode(exclude = {"rawDeviceChangeEvent", "idempotencyKey"})
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonInclude(JsonInclude.Include.NON_ABSENT)
 public class DeviceChangeEventHook {
@@ -42,6 +43,34 @@ public class DeviceChangeEventHook {
 
     private DeviceChangeEvent deviceChangeEvent;
 
+    private RawJson rawDeviceChangeEvent;
+
+    @JsonIgnore
+    private String idempotencyKey;
+
+    public DeviceChangeEvent getDeviceChangeEvent() {
+        if (deviceChangeEvent == null && rawDeviceChangeEvent != null) {
+            deviceChangeEvent = rawDeviceChangeEvent.read(DeviceChangeEvent.class);
+        }
+        return deviceChangeEvent;
+    }
+
+    @JsonIgnore
+    public String getUserId() {
+        if (deviceChangeEvent == null && rawDeviceChangeEvent != null) {
+            final String userId = rawDeviceChangeEvent.readText("deviceEvent", "request", "userId");
+            return userId != null ? userId : rawDeviceChangeEvent.readText("oldRequest", "userId");
+        }
+        if (deviceChangeEvent == null) {
+            return null;
+        }
+        final DeviceEvent deviceEvent = deviceChangeEvent.getDeviceEvent();
+        if (deviceEvent != null && deviceEvent.getRequest() != null && deviceEvent.getRequest().getUserId() != null) {
+            return deviceEvent.getRequest().getUserId();
+        }
+        return deviceChangeEvent.getOldRequest() == null ? null : deviceChangeEvent.getOldRequest().getUserId();
+    }
+
     @JsonCreator
     public static DeviceChangeEventHook fromJson() { return builder().build(); }
 }
@@ -25,6 +25,7 @@
 package io.barracks.webhookservice.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
@@ -32,8 +33,8 @@ import lombok.*;
 @Builder(toBuilder = true)
 @AllArgsConstructor
 @Getter
-@ToString
-@EqualsAndHashCode
+@ToString(exclude = "rawDeviceEvent")
+@EqualsAndHashCode(exclude = {"rawDeviceEvent", "idempotencyKey"})
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonInclude(JsonInclude.Include.NON_ABSENT)
 public class DeviceEventHook {
@@ -42,6 +43,29 @@ public class DeviceEventHook {
 
     private DeviceEvent deviceEvent;
 
+    private RawJson rawDeviceEvent;
+
+    @JsonIgnore
+    private String idempotencyKey;
+
+    public DeviceEvent getDeviceEvent() {
+        if (deviceEvent == null && rawDeviceEvent != null) {
+            deviceEvent = rawDeviceEvent.read(DeviceEvent.class);
+        }
+        return deviceEvent;
+    }
+
+    @JsonIgnore
+    public String getUserId() {
+        if (deviceEvent == null && rawDeviceEvent != null) {
+            return rawDeviceEvent.readText("request", "userId");
+        }
+        if (deviceEvent == null || deviceEvent.getRequest() == null) {
+            return null;
+        }
+        return deviceEvent.getRequest().getUserId();
+    }
+
     @JsonCreator
     public static DeviceEventHook fromJson() { return builder().build(); }
 }
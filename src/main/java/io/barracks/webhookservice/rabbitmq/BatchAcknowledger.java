@@ -0,0 +1,250 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Slf4j
+public class BatchAcknowledger {
+
+    private final int batchSize;
+
+    private final long batchTimeout;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ConcurrentMap<Channel, PendingAcks> pendingAcks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BatchAcknowledger(
+            @Value("${io.barracks.amqp.consumers.batchsize}") int batchSize,
+            @Value("${io.barracks.amqp.consumers.batchtimeout}") long batchTimeout
+    ) {
+        this(batchSize, batchTimeout, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    BatchAcknowledger(int batchSize, long batchTimeout, ScheduledExecutorService scheduler) {
+        this.batchSize = batchSize;
+        this.batchTimeout = batchTimeout;
+        this.scheduler = scheduler;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        pendingAcks.values().forEach(PendingAcks::flushAll);
+    }
+
+    public void track(Channel channel, long deliveryTag) {
+        PendingAcks acks = pendingAcks.get(channel);
+        if (acks == null) {
+            final PendingAcks created = new PendingAcks(channel);
+            acks = pendingAcks.putIfAbsent(channel, created);
+            if (acks == null) {
+                acks = created;
+                channel.addShutdownListener(cause -> pendingAcks.remove(channel, created));
+            }
+        }
+        acks.track(deliveryTag);
+    }
+
+    public void acknowledge(Channel channel, long deliveryTag) {
+        final PendingAcks acks = pendingAcks.get(channel);
+        if (acks == null || !acks.acknowledge(deliveryTag)) {
+            basicAck(channel, deliveryTag, false);
+        }
+    }
+
+    public void requeue(Channel channel, long deliveryTag) {
+        try {
+            channel.basicNack(deliveryTag, false, true);
+        } catch (IOException e) {
+            log.warn("Failed to requeue message " + deliveryTag + ", it will be redelivered.", e);
+        }
+        settle(channel, deliveryTag);
+    }
+
+    public void reject(Channel channel, long deliveryTag) {
+        try {
+            channel.basicReject(deliveryTag, false);
+        } catch (IOException e) {
+            log.warn("Failed to reject message " + deliveryTag + ", it will be redelivered.", e);
+        }
+        settle(channel, deliveryTag);
+    }
+
+    private void settle(Channel channel, long deliveryTag) {
+        final PendingAcks acks = pendingAcks.get(channel);
+        if (acks != null) {
+            acks.settle(deliveryTag);
+        }
+    }
+
+    private static void basicAck(Channel channel, long deliveryTag, boolean multiple) {
+        try {
+            channel.basicAck(deliveryTag, multiple);
+        } catch (IOException e) {
+            log.warn("Failed to acknowledge message " + deliveryTag + (multiple ? " and its predecessors" : "") + ", it will be redelivered.", e);
+        }
+    }
+
+    private class PendingAcks {
+
+        private final Channel channel;
+
+        private final TreeMap<Long, Delivery> deliveries = new TreeMap<>();
+
+        private long lastTracked;
+
+        private boolean hasUntrackedDeliveries;
+
+        private boolean flushScheduled;
+
+        PendingAcks(Channel channel) {
+            this.channel = channel;
+        }
+
+        synchronized void track(long deliveryTag) {
+            if (deliveryTag <= lastTracked) {
+                return;
+            }
+            if (deliveryTag != lastTracked + 1 && !hasUntrackedDeliveries) {
+                log.warn("Delivery " + (lastTracked + 1) + " was not tracked, acknowledging messages individually on this channel.");
+                hasUntrackedDeliveries = true;
+            }
+            deliveries.put(deliveryTag, new Delivery());
+            lastTracked = deliveryTag;
+        }
+
+        synchronized boolean acknowledge(long deliveryTag) {
+            final Delivery delivery = deliveries.get(deliveryTag);
+            if (delivery == null) {
+                return false;
+            }
+            if (hasUntrackedDeliveries) {
+                deliveries.remove(deliveryTag);
+                basicAck(channel, deliveryTag, false);
+                return true;
+            }
+            delivery.completed = true;
+            flushHead(false);
+            return true;
+        }
+
+        synchronized void settle(long deliveryTag) {
+            final Delivery delivery = deliveries.get(deliveryTag);
+            if (delivery != null) {
+                delivery.completed = true;
+                delivery.settled = true;
+                flushHead(false);
+            }
+        }
+
+        synchronized void flushAll() {
+            flushHead(true);
+            flushScheduled = false;
+            final Iterator<Map.Entry<Long, Delivery>> iterator = deliveries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<Long, Delivery> entry = iterator.next();
+                final long deliveryTag = entry.getKey();
+                final Delivery delivery = entry.getValue();
+                if (delivery.completed) {
+                    iterator.remove();
+                    if (!delivery.settled) {
+                        basicAck(channel, deliveryTag, false);
+                    }
+                }
+            }
+        }
+
+        private void flushHead(boolean force) {
+            while (!deliveries.isEmpty()) {
+                long last = -1;
+                long lastUnsettled = -1;
+                int count = 0;
+                int unsettled = 0;
+                boolean waiting = false;
+                for (Map.Entry<Long, Delivery> entry : deliveries.entrySet()) {
+                    if (!entry.getValue().completed || (count > 0 && entry.getKey() != last + 1) || count >= batchSize) {
+                        waiting = true;
+                        break;
+                    }
+                    last = entry.getKey();
+                    count++;
+                    if (!entry.getValue().settled) {
+                        lastUnsettled = entry.getKey();
+                        unsettled++;
+                    }
+                }
+                if (count == 0 || (count < batchSize && waiting && !force)) {
+                    break;
+                }
+                deliveries.headMap(last, true).clear();
+                if (unsettled > 0) {
+                    basicAck(channel, lastUnsettled, unsettled > 1);
+                }
+            }
+            scheduleFlush();
+        }
+
+        private void scheduleFlush() {
+            if (flushScheduled || deliveries.values().stream().noneMatch(delivery -> delivery.completed)) {
+                return;
+            }
+            flushScheduled = true;
+            try {
+                scheduler.schedule(this::flushAll, batchTimeout, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flushScheduled = false;
+            }
+        }
+    }
+
+    private static class Delivery {
+
+        private boolean completed;
+
+        private boolean settled;
+
+    }
+
+}
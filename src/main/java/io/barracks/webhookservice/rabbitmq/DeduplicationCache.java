@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+@Component
+public class DeduplicationCache {
+
+    private static final int MAX_PROBES = 32;
+
+    private final int capacity;
+
+    private final long window;
+
+    private final LongSupplier clock;
+
+    private volatile Generation current;
+
+    private volatile Generation previous;
+
+    @Autowired
+    public DeduplicationCache(
+            @Value("${io.barracks.webhook.dedup.capacity}") int capacity,
+            @Value("${io.barracks.webhook.dedup.window}") long window
+    ) {
+        this(capacity, window, System::currentTimeMillis);
+    }
+
+    DeduplicationCache(int capacity, long window, LongSupplier clock) {
+        this.capacity = Integer.highestOneBit(Math.max(capacity, MAX_PROBES) - 1) << 1;
+        this.window = window;
+        this.clock = clock;
+        this.current = new Generation(this.capacity, clock.getAsLong());
+        this.previous = current;
+    }
+
+    public boolean contains(long key) {
+        final long now = clock.getAsLong();
+        final Generation latest = current;
+        final Generation older = previous;
+        return (isLive(latest, now) && latest.contains(key)) || (isLive(older, now) && older.contains(key));
+    }
+
+    public void add(long key) {
+        final long now = clock.getAsLong();
+        final Generation generation = current;
+        if (now - generation.createdAt >= window / 2 || generation.size.get() >= capacity / 2 || !generation.insert(key)) {
+            rotate(generation, now);
+            current.insert(key);
+        }
+    }
+
+    public int size() {
+        final long now = clock.getAsLong();
+        final Generation latest = current;
+        final Generation older = previous;
+        return (isLive(latest, now) ? latest.size.get() : 0) + (older != latest && isLive(older, now) ? older.size.get() : 0);
+    }
+
+    public static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private boolean isLive(Generation generation, long now) {
+        return now - generation.createdAt < window;
+    }
+
+    private synchronized void rotate(Generation expected, long now) {
+        if (current == expected) {
+            previous = expected;
+            current = new Generation(capacity, now);
+        }
+    }
+
+    private static final class Generation {
+
+        private final AtomicLongArray keys;
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private final long createdAt;
+
+        private Generation(int capacity, long createdAt) {
+            this.keys = new AtomicLongArray(capacity);
+            this.createdAt = createdAt;
+        }
+
+        private boolean contains(long key) {
+            final long stored = key == 0 ? 1 : key;
+            final int mask = keys.length() - 1;
+            for (int probe = 0, slot = (int) stored & mask; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+                final long existing = keys.get(slot);
+                if (existing == stored) {
+                    return true;
+                }
+                if (existing == 0) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        private boolean insert(long key) {
+            final long stored = key == 0 ? 1 : key;
+            final int mask = keys.length() - 1;
+            for (int probe = 0, slot = (int) stored & mask; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+                final long existing = keys.get(slot);
+                if (existing == stored) {
+                    return true;
+                }
+                if (existing == 0 && keys.compareAndSet(slot, 0, stored)) {
+                    size.incrementAndGet();
+                    return true;
+                }
+                if (keys.get(slot) == stored) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@Component
+@Slf4j
+public class DeliveryExecutor {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final ExecutorService executor;
+
+    private final Semaphore permits;
+
+    private final int maxInFlight;
+
+    @Autowired
+    public DeliveryExecutor(
+            @Value("${io.barracks.webhook.delivery.executor.enabled}") boolean enabled,
+            @Value("${io.barracks.webhook.delivery.executor.virtualthreads}") boolean virtualThreads,
+            @Value("${io.barracks.webhook.delivery.executor.maxthreads}") int maxThreads,
+            @Value("${io.barracks.webhook.delivery.executor.maxinflight}") int maxInFlight
+    ) {
+        this(enabled ? createExecutor(virtualThreads, maxThreads) : null, maxInFlight);
+    }
+
+    DeliveryExecutor(ExecutorService executor, int maxInFlight) {
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    public CompletableFuture<Void> submit(Supplier<CompletableFuture<Void>> delivery) {
+        if (!isEnabled()) {
+            return delivery.get();
+        }
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return result;
+        }
+        try {
+            executor.execute(() -> run(delivery, result));
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public int prefetchFor(int prefetchCount, int maxConcurrentConsumers) {
+        if (!isEnabled()) {
+            return prefetchCount;
+        }
+        return Math.max(prefetchCount, (maxInFlight + maxConcurrentConsumers - 1) / maxConcurrentConsumers);
+    }
+
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void run(Supplier<CompletableFuture<Void>> delivery, CompletableFuture<Void> result) {
+        CompletableFuture<Void> future;
+        try {
+            future = delivery.get();
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((value, throwable) -> {
+            permits.release();
+            if (throwable == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+            }
+        });
+    }
+
+    static ExecutorService createExecutor(boolean virtualThreads, int maxThreads) {
+        if (virtualThreads) {
+            try {
+                final ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                log.info("Delivering webhooks on virtual threads.");
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                log.info("Virtual threads are not available on this JVM, falling back to a pool of " + maxThreads + " delivery threads.");
+            }
+        }
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxThreads,
+                maxThreads,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "webhook-delivery-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
@@ -0,0 +1,428 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+@Component
+@Slf4j
+public class DeliveryLog {
+
+    private static final byte END = 0;
+
+    private static final byte ACCEPTED = 1;
+
+    private static final byte COMPLETED = 2;
+
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final boolean enabled;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int maxPending;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<Long, Segment> pending = new HashMap<>();
+
+    private final Map<Long, Message> recovered = new LinkedHashMap<>();
+
+    private final Set<Segment> unsynced = new LinkedHashSet<>();
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private List<Waiter> waiters = new ArrayList<>();
+
+    private Segment current;
+
+    private long nextSegment;
+
+    private long nextId;
+
+    @Autowired
+    public DeliveryLog(
+            @Value("${io.barracks.webhook.wal.enabled}") boolean enabled,
+            @Value("${io.barracks.webhook.wal.directory}") String directory,
+            @Value("${io.barracks.webhook.wal.segmentsize}") int segmentSize,
+            @Value("${io.barracks.webhook.wal.syncinterval}") long syncInterval,
+            @Value("${io.barracks.webhook.wal.maxpending}") int maxPending
+    ) throws IOException {
+        this(enabled, Paths.get(directory), segmentSize, maxPending, Executors.newSingleThreadScheduledExecutor());
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::sync, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    DeliveryLog(boolean enabled, Path directory, int segmentSize, int maxPending, ScheduledExecutorService scheduler) throws IOException {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxPending = maxPending;
+        this.scheduler = scheduler;
+        if (enabled) {
+            open();
+        }
+    }
+
+    public CompletableFuture<Long> append(Message message) {
+        if (!enabled) {
+            return null;
+        }
+        final byte[] payload;
+        try {
+            payload = encode(message);
+        } catch (IOException e) {
+            log.warn("Failed to encode message for the delivery log", e);
+            return null;
+        }
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+        synchronized (this) {
+            if (pending.size() >= maxPending || HEADER_SIZE + payload.length > segmentSize) {
+                return null;
+            }
+            try {
+                write(ACCEPTED, nextId, payload);
+            } catch (IOException e) {
+                log.warn("Failed to append message to the delivery log", e);
+                return null;
+            }
+            pending.put(nextId, current);
+            current.live++;
+            waiters.add(new Waiter(nextId++, result));
+        }
+        return result;
+    }
+
+    public synchronized void complete(long id) {
+        final Segment segment = pending.remove(id);
+        if (segment == null) {
+            return;
+        }
+        try {
+            write(COMPLETED, id, new byte[0]);
+        } catch (IOException e) {
+            log.warn("Failed to record completion of delivery " + id, e);
+        }
+        segment.live--;
+        deleteCompletedSegments();
+    }
+
+    public synchronized Map<Long, Message> drainRecovered() {
+        final Map<Long, Message> entries = new LinkedHashMap<>(recovered);
+        recovered.clear();
+        return entries;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    void sync() {
+        final List<Waiter> synced;
+        final List<Segment> dirty;
+        synchronized (this) {
+            if (waiters.isEmpty() && unsynced.isEmpty()) {
+                return;
+            }
+            synced = waiters;
+            dirty = new ArrayList<>(unsynced);
+            waiters = new ArrayList<>();
+            unsynced.clear();
+        }
+        try {
+            dirty.forEach(segment -> segment.buffer.force());
+            synced.forEach(waiter -> waiter.result.complete(waiter.id));
+        } catch (RuntimeException e) {
+            log.error("Failed to sync the delivery log", e);
+            synced.forEach(waiter -> {
+                complete(waiter.id);
+                waiter.result.completeExceptionally(e);
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (enabled) {
+            sync();
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        final List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        paths.sort(null);
+        for (Path path : paths) {
+            final Segment segment = map(path, (int) Files.size(path));
+            scan(segment);
+            segments.add(segment);
+            nextSegment = Math.max(nextSegment, sequenceOf(path) + 1);
+        }
+        current = roll();
+        deleteCompletedSegments();
+        if (!recovered.isEmpty()) {
+            log.info("Recovered " + recovered.size() + " unfinished deliveries from " + directory);
+        }
+    }
+
+    private void scan(Segment segment) {
+        final ByteBuffer buffer = segment.buffer.duplicate();
+        while (buffer.remaining() >= HEADER_SIZE) {
+            final int length = buffer.getInt();
+            final byte type = buffer.get();
+            if (type == END || length < 0 || length > buffer.remaining() - 12) {
+                break;
+            }
+            final long id = buffer.getLong();
+            final int checksum = buffer.getInt();
+            final byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum != checksumOf(type, id, payload)) {
+                log.warn("Ignoring torn record " + id + " at the end of " + segment.path);
+                break;
+            }
+            nextId = Math.max(nextId, id + 1);
+            if (type == ACCEPTED) {
+                try {
+                    recovered.put(id, decode(payload));
+                    pending.put(id, segment);
+                    segment.live++;
+                } catch (IOException e) {
+                    log.warn("Ignoring unreadable record " + id + " in " + segment.path, e);
+                }
+            } else if (type == COMPLETED) {
+                recovered.remove(id);
+                final Segment owner = pending.remove(id);
+                if (owner != null) {
+                    owner.live--;
+                }
+            }
+        }
+    }
+
+    private void write(byte type, long id, byte[] payload) throws IOException {
+        if (current.buffer.remaining() < HEADER_SIZE + payload.length) {
+            current = roll();
+            deleteCompletedSegments();
+        }
+        current.buffer.putInt(payload.length)
+                .put(type)
+                .putLong(id)
+                .putInt(checksumOf(type, id, payload))
+                .put(payload);
+        unsynced.add(current);
+    }
+
+    private Segment roll() throws IOException {
+        final Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSegment++, SEGMENT_SUFFIX));
+        final Segment segment = map(path, segmentSize);
+        segments.add(segment);
+        return segment;
+    }
+
+    private void deleteCompletedSegments() {
+        while (segments.peekFirst() != current && segments.peekFirst().live == 0) {
+            delete(segments.pollFirst());
+        }
+    }
+
+    private void delete(Segment segment) {
+        unsynced.remove(segment);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Failed to delete delivery log segment " + segment.path, e);
+        }
+    }
+
+    private static Segment map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    private static long sequenceOf(Path path) {
+        final String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int checksumOf(byte type, long id, byte[] payload) {
+        final CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(9).put(type).putLong(id).array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static byte[] encode(Message message) throws IOException {
+        final MessageProperties properties = message.getMessageProperties();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(message.getBody().length + 256);
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeUTF(nullToEmpty(properties.getMessageId()));
+        output.writeUTF(nullToEmpty(properties.getConsumerQueue()));
+        output.writeUTF(nullToEmpty(properties.getContentType()));
+        output.writeUTF(nullToEmpty(properties.getContentEncoding()));
+        output.writeLong(properties.getTimestamp() == null ? -1 : properties.getTimestamp().getTime());
+        final Map<String, Object> headers = new LinkedHashMap<>();
+        properties.getHeaders().forEach((key, value) -> {
+            if (value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Boolean) {
+                headers.put(key, value);
+            }
+        });
+        output.writeInt(headers.size());
+        for (Map.Entry<String, Object> header : headers.entrySet()) {
+            output.writeUTF(header.getKey());
+            final Object value = header.getValue();
+            if (value instanceof String) {
+                output.writeByte('S');
+                output.writeUTF((String) value);
+            } else if (value instanceof Integer) {
+                output.writeByte('I');
+                output.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                output.writeByte('L');
+                output.writeLong((Long) value);
+            } else {
+                output.writeByte('B');
+                output.writeBoolean((Boolean) value);
+            }
+        }
+        output.writeInt(message.getBody().length);
+        output.write(message.getBody());
+        return bytes.toByteArray();
+    }
+
+    static Message decode(byte[] payload) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        final MessageProperties properties = new MessageProperties();
+        properties.setMessageId(emptyToNull(input.readUTF()));
+        properties.setConsumerQueue(emptyToNull(input.readUTF()));
+        properties.setContentType(emptyToNull(input.readUTF()));
+        properties.setContentEncoding(emptyToNull(input.readUTF()));
+        final long timestamp = input.readLong();
+        if (timestamp >= 0) {
+            properties.setTimestamp(new Date(timestamp));
+        }
+        final int headers = input.readInt();
+        for (int i = 0; i < headers; i++) {
+            final String key = input.readUTF();
+            final byte tag = input.readByte();
+            if (tag == 'S') {
+                properties.setHeader(key, input.readUTF());
+            } else if (tag == 'I') {
+                properties.setHeader(key, input.readInt());
+            } else if (tag == 'L') {
+                properties.setHeader(key, input.readLong());
+            } else {
+                properties.setHeader(key, input.readBoolean());
+            }
+        }
+        final byte[] body = new byte[input.readInt()];
+        input.readFully(body);
+        return new Message(body, properties);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static final class Waiter {
+
+        private final long id;
+
+        private final CompletableFuture<Long> result;
+
+        private Waiter(long id, CompletableFuture<Long> result) {
+            this.id = id;
+            this.result = result;
+        }
+
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+
+        private final MappedByteBuffer buffer;
+
+        private int live;
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@Slf4j
+public class DeliveryLogRecovery {
+
+    private final DeliveryLog deliveryLog;
+
+    private final RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    public DeliveryLogRecovery(DeliveryLog deliveryLog, RabbitTemplate rabbitTemplate) {
+        this.deliveryLog = deliveryLog;
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        for (Map.Entry<Long, Message> entry : deliveryLog.drainRecovered().entrySet()) {
+            final Message message = entry.getValue();
+            try {
+                rabbitTemplate.send("", message.getMessageProperties().getConsumerQueue(), message);
+                deliveryLog.complete(entry.getKey());
+            } catch (AmqpException e) {
+                log.error("Failed to republish recovered delivery " + entry.getKey() + ", keeping it for the next start.", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.barracks.webhookservice.model.DeviceChangeEventHook;
+import io.barracks.webhookservice.model.DeviceEventHook;
+import io.barracks.webhookservice.model.Hook;
+import io.barracks.webhookservice.model.RawJson;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiFunction;
+
+public class HookMessageConverter extends Jackson2JsonMessageConverter {
+
+    private final ObjectMapper objectMapper;
+
+    public HookMessageConverter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        setJsonObjectMapper(objectMapper);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        final MessageProperties properties = message.getMessageProperties();
+        if (isUtf8Json(properties)) {
+            final Class<?> type = getJavaTypeMapper().toJavaType(properties).getRawClass();
+            if (DeviceEventHook.class.equals(type)) {
+                return readHook(message.getBody(), "deviceEvent",
+                        (hook, event) -> DeviceEventHook.builder().hook(hook).rawDeviceEvent(event).build()
+                );
+            }
+            if (DeviceChangeEventHook.class.equals(type)) {
+                return readHook(message.getBody(), "deviceChangeEvent",
+                        (hook, event) -> DeviceChangeEventHook.builder().hook(hook).rawDeviceChangeEvent(event).build()
+                );
+            }
+        }
+        return super.fromMessage(message);
+    }
+
+    private boolean isUtf8Json(MessageProperties properties) {
+        return properties != null
+                && properties.getContentType() != null
+                && properties.getContentType().contains("json")
+                && (properties.getContentEncoding() == null || StandardCharsets.UTF_8.name().equalsIgnoreCase(properties.getContentEncoding()));
+    }
+
+    private <T> T readHook(byte[] body, String eventField, BiFunction<Hook, RawJson, T> factory) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MessageConversionException("Expected a JSON object but got " + parser.getCurrentToken());
+            }
+            Hook hook = null;
+            RawJson event = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                if ("hook".equals(field)) {
+                    hook = objectMapper.readValue(parser, Hook.class);
+                } else if (eventField.equals(field) && token == JsonToken.START_OBJECT) {
+                    final long start = parser.getTokenLocation().getByteOffset();
+                    parser.skipChildren();
+                    final long end = parser.getCurrentLocation().getByteOffset();
+                    event = new RawJson(objectMapper, body, (int) start, (int) (end - start));
+                } else if (eventField.equals(field) && token != JsonToken.VALUE_NULL) {
+                    throw new MessageConversionException("Expected " + eventField + " to be a JSON object but got " + token);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return factory.apply(hook, event);
+        } catch (IOException e) {
+            throw new MessageConversionException("Failed to convert Message content", e);
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.listener.exception.ListenerExecutionFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class ListenerFailureAdvice implements MethodInterceptor {
+
+    private static final String INVALID_MESSAGE_METRIC = "message.process.invalid.";
+
+    private final BatchAcknowledger batchAcknowledger;
+
+    private final ParkingLot parkingLot;
+
+    private final CounterService counter;
+
+    @Autowired
+    public ListenerFailureAdvice(BatchAcknowledger batchAcknowledger, ParkingLot parkingLot, CounterService counter) {
+        this.batchAcknowledger = batchAcknowledger;
+        this.parkingLot = parkingLot;
+        this.counter = counter;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        try {
+            return invocation.proceed();
+        } catch (Exception e) {
+            final Object[] arguments = invocation.getArguments();
+            if (arguments.length < 2 || !(arguments[0] instanceof Channel) || !(arguments[1] instanceof Message)) {
+                throw e;
+            }
+            handleFailure((Channel) arguments[0], (Message) arguments[1], e);
+            return null;
+        }
+    }
+
+    private void handleFailure(Channel channel, Message message, Exception exception) {
+        final long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        final Throwable reason = exception instanceof ListenerExecutionFailedException && exception.getCause() != null
+                ? exception.getCause()
+                : exception;
+        log.error("Listener failed on message " + deliveryTag + ", parking it.", reason);
+        batchAcknowledger.track(channel, deliveryTag);
+        try {
+            parkingLot.park(message, null, reason);
+            counter.increment(INVALID_MESSAGE_METRIC + "parked");
+            batchAcknowledger.acknowledge(channel, deliveryTag);
+        } catch (AmqpException e) {
+            log.error("Failed to park message " + deliveryTag + ", rejecting it.", e);
+            counter.increment(INVALID_MESSAGE_METRIC + "rejected");
+            batchAcknowledger.reject(channel, deliveryTag);
+        }
+    }
+
+}
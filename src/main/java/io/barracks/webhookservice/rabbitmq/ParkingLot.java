@@ -0,0 +1,204 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import io.barracks.webhookservice.model.ParkedMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Slf4j
+public class ParkingLot {
+
+    static final String SOURCE_QUEUE_HEADER = "x-barracks-source-queue";
+
+    static final String HOOK_NAME_HEADER = "x-barracks-hook-name";
+
+    static final String REASON_HEADER = "x-barracks-parking-reason";
+
+    static final String PARKED_AT_HEADER = "x-barracks-parked-at";
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final String queueName;
+
+    private final int maxScannedMessages;
+
+    @Autowired
+    public ParkingLot(
+            RabbitTemplate rabbitTemplate,
+            ObjectMapper objectMapper,
+            @Value("${io.barracks.webhook.parkinglot.queuename}") String queueName,
+            @Value("${io.barracks.webhook.parkinglot.maxscannedmessages}") int maxScannedMessages
+    ) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.queueName = queueName;
+        this.maxScannedMessages = maxScannedMessages;
+    }
+
+    public void park(Message message, String hookName, Throwable reason) {
+        final MessageProperties properties = message.getMessageProperties();
+        properties.setHeader(SOURCE_QUEUE_HEADER, properties.getConsumerQueue());
+        properties.setHeader(HOOK_NAME_HEADER, hookName);
+        properties.setHeader(REASON_HEADER, String.valueOf(reason));
+        properties.setHeader(PARKED_AT_HEADER, System.currentTimeMillis());
+        properties.setExpiration(null);
+        rabbitTemplate.send("", queueName, message);
+    }
+
+    public long count() {
+        return rabbitTemplate.execute(channel -> (long) channel.queueDeclarePassive(queueName).getMessageCount());
+    }
+
+    public List<ParkedMessage> browse(Optional<String> hookName, int limit) {
+        return rabbitTemplate.execute(channel -> {
+            final List<ParkedMessage> result = new ArrayList<>();
+            final long depth = Math.min(channel.queueDeclarePassive(queueName).getMessageCount(), maxScannedMessages);
+            long lastDeliveryTag = -1;
+            try {
+                for (long scanned = 0; scanned < depth && result.size() < limit; scanned++) {
+                    final GetResponse response = channel.basicGet(queueName, false);
+                    if (response == null) {
+                        break;
+                    }
+                    lastDeliveryTag = response.getEnvelope().getDeliveryTag();
+                    if (matches(response, hookName)) {
+                        result.add(toParkedMessage(response));
+                    }
+                }
+            } finally {
+                if (lastDeliveryTag >= 0) {
+                    channel.basicNack(lastDeliveryTag, true, true);
+                }
+            }
+            return result;
+        });
+    }
+
+    public void replay(Optional<String> hookName, long limit, double rate, ReplayProgress progress) {
+        rabbitTemplate.execute(channel -> {
+            final long depth = channel.queueDeclarePassive(queueName).getMessageCount();
+            final long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            long next = System.nanoTime();
+            for (long scanned = 0; scanned < depth && progress.getReplayed() < limit; scanned++) {
+                final GetResponse response = channel.basicGet(queueName, false);
+                if (response == null) {
+                    break;
+                }
+                progress.onScanned();
+                final String sourceQueue = header(response, SOURCE_QUEUE_HEADER);
+                if (matches(response, hookName) && sourceQueue == null) {
+                    log.warn("Parked message " + response.getEnvelope().getDeliveryTag() + " has no source queue, leaving it in the parking lot.");
+                    channel.basicPublish("", queueName, response.getProps(), response.getBody());
+                } else if (matches(response, hookName)) {
+                    next = pace(next, interval);
+                    channel.basicPublish("", sourceQueue, replayProperties(response), response.getBody());
+                    progress.onReplayed();
+                } else {
+                    channel.basicPublish("", queueName, response.getProps(), response.getBody());
+                }
+                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+            }
+            return null;
+        });
+    }
+
+    private long pace(long next, long interval) throws InterruptedException {
+        final long now = System.nanoTime();
+        if (next > now) {
+            TimeUnit.NANOSECONDS.sleep(next - now);
+            return next + interval;
+        }
+        return now + interval;
+    }
+
+    private boolean matches(GetResponse response, Optional<String> hookName) {
+        return hookName.map(name -> name.equals(header(response, HOOK_NAME_HEADER))).orElse(true);
+    }
+
+    private AMQP.BasicProperties replayProperties(GetResponse response) {
+        final Map<String, Object> headers = new HashMap<>();
+        Optional.ofNullable(response.getProps().getHeaders()).ifPresent(headers::putAll);
+        headers.remove(RetryPublisher.ATTEMPT_HEADER);
+        headers.remove(SOURCE_QUEUE_HEADER);
+        headers.remove(REASON_HEADER);
+        headers.remove(PARKED_AT_HEADER);
+        headers.remove("x-death");
+        return response.getProps().builder().headers(headers).build();
+    }
+
+    private ParkedMessage toParkedMessage(GetResponse response) {
+        final Map<String, Object> headers = Optional.ofNullable(response.getProps().getHeaders())
+                .orElse(Collections.emptyMap());
+        final Object parkedAt = headers.get(PARKED_AT_HEADER);
+        final Object attempts = headers.get(RetryPublisher.ATTEMPT_HEADER);
+        return ParkedMessage.builder()
+                .hookName(header(response, HOOK_NAME_HEADER))
+                .sourceQueue(header(response, SOURCE_QUEUE_HEADER))
+                .reason(header(response, REASON_HEADER))
+                .attempts(attempts instanceof Number ? ((Number) attempts).intValue() : 0)
+                .parkedAt(parkedAt instanceof Number ? new Date(((Number) parkedAt).longValue()) : null)
+                .payload(readPayload(response.getBody()))
+                .build();
+    }
+
+    private JsonNode readPayload(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            log.warn("Parked message payload is not valid JSON.", e);
+            return null;
+        }
+    }
+
+    private String header(GetResponse response, String name) {
+        final Map<String, Object> headers = response.getProps().getHeaders();
+        final Object value = headers == null ? null : headers.get(name);
+        return value == null ? null : value.toString();
+    }
+
+}
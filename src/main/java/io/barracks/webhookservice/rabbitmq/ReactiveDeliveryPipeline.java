@@ -0,0 +1,245 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import io.barracks.webhookservice.manager.exception.BulkheadFullException;
+import io.barracks.webhookservice.model.Hook;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Component
+@Slf4j
+public class ReactiveDeliveryPipeline {
+
+    private final boolean enabled;
+
+    private final int perHookConcurrency;
+
+    private final int prefetch;
+
+    private final int perHookBuffer;
+
+    private final long idleTimeout;
+
+    private final Semaphore demand = new Semaphore(0);
+
+    private final ConcurrentMap<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private volatile boolean unbounded;
+
+    private volatile FluxSink<Delivery> sink;
+
+    private Disposable subscription;
+
+    @Autowired
+    public ReactiveDeliveryPipeline(
+            @Value("${io.barracks.webhook.pipeline.reactive}") boolean enabled,
+            @Value("${io.barracks.webhook.pipeline.perhookconcurrency}") int perHookConcurrency,
+            @Value("${io.barracks.webhook.pipeline.prefetch}") int prefetch,
+            @Value("${io.barracks.webhook.pipeline.perhookbuffer}") int perHookBuffer,
+            @Value("${io.barracks.webhook.pipeline.idletimeout}") long idleTimeout
+    ) {
+        this.enabled = enabled;
+        this.perHookConcurrency = perHookConcurrency;
+        this.prefetch = prefetch;
+        this.perHookBuffer = perHookBuffer;
+        this.idleTimeout = idleTimeout;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = Flux.<Delivery>create(emitter -> {
+            emitter.onRequest(this::request);
+            sink = emitter;
+        }, FluxSink.OverflowStrategy.BUFFER)
+                .groupBy(Delivery::getLane, prefetch)
+                .flatMap(group -> group.flatMap(this::send, perHookConcurrency)
+                        .takeUntilOther(Flux.interval(Duration.ofMillis(idleTimeout)).filter(tick -> close(group.key()))), Integer.MAX_VALUE)
+                .subscribe();
+        log.info("Delivering webhooks through the reactive pipeline with " + perHookConcurrency + " concurrent calls and " + perHookBuffer + " buffered deliveries per hook.");
+    }
+
+    @PreDestroy
+    public void stop() {
+        final FluxSink<Delivery> current = sink;
+        if (current != null) {
+            current.complete();
+        }
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    public CompletableFuture<Void> submit(Hook hook, Supplier<CompletableFuture<Void>> call) {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        final FluxSink<Delivery> current = sink;
+        if (current == null || current.isCancelled()) {
+            result.completeExceptionally(new IllegalStateException("The reactive delivery pipeline is not running"));
+            return result;
+        }
+        final String key = hook == null || hook.getUrl() == null ? "" : hook.getUrl();
+        final Lane lane = tryAcquireLane(key);
+        if (lane == null) {
+            result.completeExceptionally(new BulkheadFullException(key));
+            return result;
+        }
+        if (!unbounded && !demand.tryAcquire()) {
+            lane.release();
+            result.completeExceptionally(new BulkheadFullException("reactive pipeline"));
+            return result;
+        }
+        current.next(new Delivery(lane, call, result));
+        return result;
+    }
+
+    public int getAvailableDemand() {
+        return unbounded ? Integer.MAX_VALUE : demand.availablePermits();
+    }
+
+    public int getActiveHooks() {
+        return lanes.size();
+    }
+
+    private Lane tryAcquireLane(String key) {
+        while (true) {
+            final Lane lane = lanes.computeIfAbsent(key, Lane::new);
+            if (!lane.permits.tryAcquire()) {
+                return null;
+            }
+            synchronized (lane) {
+                if (!lane.closed) {
+                    return lane;
+                }
+            }
+            lane.permits.release();
+        }
+    }
+
+    private boolean close(Lane lane) {
+        synchronized (lane) {
+            if (lane.permits.availablePermits() < perHookBuffer
+                    || System.nanoTime() - lane.lastReleased < TimeUnit.MILLISECONDS.toNanos(idleTimeout)) {
+                return false;
+            }
+            lane.closed = true;
+        }
+        lanes.remove(lane.key, lane);
+        return true;
+    }
+
+    private void request(long n) {
+        if (n == Long.MAX_VALUE) {
+            unbounded = true;
+            demand.release(Integer.MAX_VALUE - demand.availablePermits());
+        } else if (!unbounded) {
+            demand.release((int) Math.min(n, Integer.MAX_VALUE - demand.availablePermits()));
+        }
+    }
+
+    private Mono<Boolean> send(Delivery delivery) {
+        CompletableFuture<Void> future;
+        try {
+            future = delivery.call.get();
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        return Mono.fromFuture(future.handle((value, throwable) -> {
+            if (throwable == null) {
+                delivery.result.complete(value);
+            } else {
+                delivery.result.completeExceptionally(throwable instanceof CompletionException ? throwable.getCause() : throwable);
+            }
+            delivery.lane.release();
+            return Boolean.TRUE;
+        }));
+    }
+
+    private class Lane {
+
+        private final String key;
+
+        private final Semaphore permits = new Semaphore(perHookBuffer);
+
+        private volatile long lastReleased = System.nanoTime();
+
+        private boolean closed;
+
+        Lane(String key) {
+            this.key = key;
+        }
+
+        void release() {
+            lastReleased = System.nanoTime();
+            permits.release();
+        }
+
+    }
+
+    private static class Delivery {
+
+        private final Lane lane;
+
+        private final Supplier<CompletableFuture<Void>> call;
+
+        private final CompletableFuture<Void> result;
+
+        Delivery(Lane lane, Supplier<CompletableFuture<Void>> call, CompletableFuture<Void> result) {
+            this.lane = lane;
+            this.call = call;
+            this.result = result;
+        }
+
+        Lane getLane() {
+            return lane;
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Getter
+public class RetryBackOff {
+
+    private final long initialDelay;
+
+    private final double multiplier;
+
+    private final long maxDelay;
+
+    private final int maxAttempts;
+
+    private final int jitterSlots;
+
+    public RetryBackOff(long initialDelay, double multiplier, long maxDelay, int maxAttempts, int jitterSlots) {
+        this.initialDelay = initialDelay;
+        this.multiplier = multiplier;
+        this.maxDelay = maxDelay;
+        this.maxAttempts = maxAttempts;
+        this.jitterSlots = Math.max(jitterSlots, 1);
+    }
+
+    public static String getRetryQueueName(String queueName, long delay) {
+        return queueName + ".retry." + delay;
+    }
+
+    public boolean canRetry(int attempt) {
+        return attempt <= maxAttempts;
+    }
+
+    public long getDelay(int attempt) {
+        final double delay = initialDelay * Math.pow(multiplier, Math.max(attempt - 1, 0));
+        return delay >= maxDelay ? maxDelay : (long) delay;
+    }
+
+    public long getJitteredDelay(long delay) {
+        final List<Long> slots = getJitterSlots(delay);
+        return slots.get(ThreadLocalRandom.current().nextInt(slots.size()));
+    }
+
+    public List<Long> getJitterSlots(long delay) {
+        final long half = delay / 2;
+        final List<Long> slots = new ArrayList<>();
+        for (int slot = 0; slot < jitterSlots; slot++) {
+            final long slotDelay = jitterSlots == 1 ? delay : half + (delay - half) * slot / (jitterSlots - 1);
+            if (!slots.contains(slotDelay)) {
+                slots.add(slotDelay);
+            }
+        }
+        return slots;
+    }
+
+    public List<Long> getDelays() {
+        final List<Long> delays = new ArrayList<>();
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            final long delay = getDelay(attempt);
+            if (!delays.contains(delay)) {
+                delays.add(delay);
+            }
+        }
+        return delays;
+    }
+
+    public List<Long> getQueueDelays() {
+        final List<Long> queueDelays = new ArrayList<>();
+        for (long delay : getDelays()) {
+            for (long slotDelay : getJitterSlots(delay)) {
+                if (!queueDelays.contains(slotDelay)) {
+                    queueDelays.add(slotDelay);
+                }
+            }
+        }
+        return queueDelays;
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class RetryPublisher {
+
+    static final String ATTEMPT_HEADER = "x-barracks-attempt";
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final RetryBackOff retryBackOff;
+
+    @Autowired
+    public RetryPublisher(RabbitTemplate rabbitTemplate, RetryBackOff retryBackOff) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.retryBackOff = retryBackOff;
+    }
+
+    public static int getAttempt(Message message) {
+        final Object attempt = message.getMessageProperties().getHeaders().get(ATTEMPT_HEADER);
+        return attempt instanceof Number ? ((Number) attempt).intValue() : 0;
+    }
+
+    public boolean retry(Message message) {
+        final int attempt = getAttempt(message) + 1;
+        if (!retryBackOff.canRetry(attempt)) {
+            return false;
+        }
+        final long delay = retryBackOff.getDelay(attempt);
+        final MessageProperties properties = message.getMessageProperties();
+        properties.setHeader(ATTEMPT_HEADER, attempt);
+        properties.setExpiration(null);
+        rabbitTemplate.send("", RetryBackOff.getRetryQueueName(properties.getConsumerQueue(), retryBackOff.getJitteredDelay(delay)), message);
+        return true;
+    }
+
+}
@@ -25,35 +25,137 @@
 package io.barracks.webhookservice.rabbitmq;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import io.barracks.webhookservice.client.exception.WebhookClientException;
 import io.barracks.webhookservice.manager.WebhookManager;
+import io.barracks.webhookservice.metrics.WebhookMetrics;
 import io.barracks.webhookservice.model.DeviceChangeEventHook;
 import io.barracks.webhookservice.model.DeviceEventHook;
+import io.barracks.webhookservice.model.Hook;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.Exchange;
 import org.springframework.amqp.rabbit.annotation.Queue;
 import org.springframework.amqp.rabbit.annotation.QueueBinding;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.metrics.CounterService;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
 
 @Component
 @Slf4j
 public class WebhookMessageListener {
 
+    private static final String DEVICE_EVENT_METRIC = "message.process.device.event.";
+
+    private static final String DEVICE_CHANGE_EVENT_METRIC = "message.process.device.change.event.";
+
+    private static final int SETTLEMENT_QUEUE_SIZE = 10000;
+
     private final WebhookManager webhookManager;
 
     private final ObjectMapper objectMapper;
 
     private final CounterService counter;
 
+    private final RetryPublisher retryPublisher;
+
+    private final ParkingLot parkingLot;
+
+    private final BatchAcknowledger batchAcknowledger;
+
+    private final WebhookMetrics webhookMetrics;
+
+    private final DeliveryLog deliveryLog;
+
+    private final DeduplicationCache deduplicationCache;
+
+    private final DeliveryExecutor deliveryExecutor;
+
+    private final ReactiveDeliveryPipeline reactiveDeliveryPipeline;
+
+    private final Executor settlementExecutor;
+
     @Autowired
-    WebhookMessageListener(WebhookManager webhookManager, ObjectMapper objectMapper, CounterService counter) {
+    WebhookMessageListener(
+            WebhookManager webhookManager,
+            ObjectMapper objectMapper,
+            CounterService counter,
+            RetryPublisher retryPublisher,
+            ParkingLot parkingLot,
+            BatchAcknowledger batchAcknowledger,
+            WebhookMetrics webhookMetrics,
+            DeliveryLog deliveryLog,
+            DeduplicationCache deduplicationCache,
+            DeliveryExecutor deliveryExecutor,
+            ReactiveDeliveryPipeline reactiveDeliveryPipeline,
+            @Value("${io.barracks.amqp.consumers.settlementthreads}") int settlementThreads
+    ) {
+        this(
+                webhookManager,
+                objectMapper,
+                counter,
+                retryPublisher,
+                parkingLot,
+                batchAcknowledger,
+                webhookMetrics,
+                deliveryLog,
+                deduplicationCache,
+                deliveryExecutor,
+                reactiveDeliveryPipeline,
+                createSettlementExecutor(settlementThreads)
+        );
+    }
+
+    WebhookMessageListener(
+            WebhookManager webhookManager,
+            ObjectMapper objectMapper,
+            CounterService counter,
+            RetryPublisher retryPublisher,
+            ParkingLot parkingLot,
+            BatchAcknowledger batchAcknowledger,
+            WebhookMetrics webhookMetrics,
+            DeliveryLog deliveryLog,
+            DeduplicationCache deduplicationCache,
+            DeliveryExecutor deliveryExecutor,
+            ReactiveDeliveryPipeline reactiveDeliveryPipeline,
+            Executor settlementExecutor
+    ) {
         this.webhookManager = webhookManager;
         this.objectMapper = objectMapper;
         this.counter = counter;
+        this.retryPublisher = retryPublisher;
+        this.parkingLot = parkingLot;
+        this.batchAcknowledger = batchAcknowledger;
+        this.webhookMetrics = webhookMetrics;
+        this.deliveryLog = deliveryLog;
+        this.deduplicationCache = deduplicationCache;
+        this.deliveryExecutor = deliveryExecutor;
+        this.reactiveDeliveryPipeline = reactiveDeliveryPipeline;
+        this.settlementExecutor = settlementExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (settlementExecutor instanceof ExecutorService) {
+            ((ExecutorService) settlementExecutor).shutdown();
+        }
     }
 
     @RabbitListener(
@@ -61,16 +163,13 @@ public class WebhookMessageListener {
                     value = @Queue(value = "${io.barracks.webhook.queuename}", durable = "true", autoDelete = "false"),
                     exchange = @Exchange(value = "${io.barracks.amqp.exchangename}", type = "topic", durable = "true"),
                     key = "${io.barracks.webhook.routingkey}"
-            )
+            ),
+            containerFactory = "webhookListenerContainerFactory"
     )
-    public void receiveMessage(@Payload DeviceEventHook deviceEventHook) {
-        try {
-            webhookManager.postDeviceEventHook(deviceEventHook);
-            incrementRabbitMQMetric("success");
-        } catch (Exception e) {
-            log.error("Error while sending data to the web hook.", e);
-            incrementRabbitMQMetric("error");
-        }
+    public void receiveMessage(@Payload DeviceEventHook deviceEventHook, Message message, Channel channel) {
+        final String idempotencyKey = idempotencyKeyOf(message);
+        final DeviceEventHook keyedHook = deviceEventHook.toBuilder().idempotencyKey(idempotencyKey).build();
+        deliver(deviceEventHook.getHook(), () -> webhookManager.postDeviceEventHook(keyedHook), message, channel, DEVICE_EVENT_METRIC, idempotencyKey);
     }
 
     @RabbitListener(
@@ -78,20 +177,149 @@ public class WebhookMessageListener {
                     value = @Queue(value = "${io.barracks.webhookchange.queuename}", durable = "true", autoDelete = "false"),
                     exchange = @Exchange(value = "${io.barracks.amqp.exchangename}", type = "topic", durable = "true"),
                     key = "${io.barracks.webhookchange.routingkey}"
-            )
+            ),
+            containerFactory = "webhookChangeListenerContainerFactory"
     )
-    public void receiveChangeMessage(@Payload DeviceChangeEventHook deviceChangeEventHook) {
+    public void receiveChangeMessage(@Payload DeviceChangeEventHook deviceChangeEventHook, Message message, Channel channel) {
+        final String idempotencyKey = idempotencyKeyOf(message);
+        final DeviceChangeEventHook keyedHook = deviceChangeEventHook.toBuilder().idempotencyKey(idempotencyKey).build();
+        deliver(
+                deviceChangeEventHook.getHook(),
+                () -> webhookManager.postDeviceChangeEventHook(keyedHook),
+                message,
+                channel,
+                DEVICE_CHANGE_EVENT_METRIC,
+                idempotencyKey
+        );
+    }
+
+    private void deliver(
+            Hook hook,
+            Supplier<CompletableFuture<Void>> delivery,
+            Message message,
+            Channel channel,
+            String metric,
+            String idempotencyKey
+    ) {
+        final long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        final long deduplicationKey = DeduplicationCache.hash(
+                idempotencyKey != null ? idempotencyKey.getBytes(StandardCharsets.UTF_8) : message.getBody()
+        );
+        batchAcknowledger.track(channel, deliveryTag);
+        if (mayBeDuplicate(message, idempotencyKey) && deduplicationCache.contains(deduplicationKey)) {
+            log.debug("Skipping message " + deliveryTag + " already delivered with key " + String.format("%016x", deduplicationKey));
+            incrementRabbitMQMetric(metric, "duplicate");
+            batchAcknowledger.acknowledge(channel, deliveryTag);
+            return;
+        }
+        final long receivedAt = webhookMetrics.messageReceived();
+        final CompletableFuture<Long> logged = deliveryLog.append(message);
+        if (logged != null) {
+            logged.thenRun(() -> batchAcknowledger.acknowledge(channel, deliveryTag));
+        }
+        CompletableFuture<Void> result;
         try {
-            webhookManager.postDeviceChangeEventHook(deviceChangeEventHook);
-            incrementRabbitMQMetric("success");
+            if (reactiveDeliveryPipeline.isEnabled()) {
+                result = reactiveDeliveryPipeline.submit(hook, delivery);
+            } else {
+                result = deliveryExecutor.submit(delivery);
+            }
         } catch (Exception e) {
-            log.error("Error while sending data to the web hook.", e);
-            incrementRabbitMQMetric("error");
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        result.whenCompleteAsync((ignored, throwable) -> {
+            webhookMetrics.messageProcessed(
+                    hook == null ? null : hook.getName(),
+                    receivedAt,
+                    message.getMessageProperties().getTimestamp(),
+                    throwable == null
+            );
+            if (throwable == null) {
+                incrementRabbitMQMetric(metric, "success");
+                deduplicationCache.add(deduplicationKey);
+                settle(logged, channel, deliveryTag);
+            } else {
+                log.error("Error while sending data to the web hook.", throwable);
+                incrementRabbitMQMetric(metric, "error");
+                handleFailure(hook, throwable instanceof CompletionException ? throwable.getCause() : throwable, message, channel, metric, logged);
+            }
+        }, settlementExecutor);
+    }
+
+    private void handleFailure(Hook hook, Throwable throwable, Message message, Channel channel, String metric, CompletableFuture<Long> logged) {
+        final long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        try {
+            if (WebhookClientException.isRetryable(throwable) && retryPublisher.retry(message)) {
+                incrementRabbitMQMetric(metric, "retry");
+            } else {
+                log.warn("Parking message " + deliveryTag + " after " + RetryPublisher.getAttempt(message) + " retries.");
+                parkingLot.park(message, hook == null ? null : hook.getName(), throwable);
+                incrementRabbitMQMetric(metric, "parked");
+            }
+            settle(logged, channel, deliveryTag);
+        } catch (AmqpException e) {
+            log.error("Failed to retry or park message " + deliveryTag + ", requeuing it.", e);
+            requeue(logged, channel, deliveryTag);
+        }
+    }
+
+    private void settle(CompletableFuture<Long> logged, Channel channel, long deliveryTag) {
+        if (logged == null) {
+            batchAcknowledger.acknowledge(channel, deliveryTag);
+            return;
         }
+        logged.whenComplete((id, throwable) -> {
+            if (throwable == null) {
+                deliveryLog.complete(id);
+            } else {
+                batchAcknowledger.acknowledge(channel, deliveryTag);
+            }
+        });
+    }
+
+    private void requeue(CompletableFuture<Long> logged, Channel channel, long deliveryTag) {
+        if (logged == null) {
+            batchAcknowledger.requeue(channel, deliveryTag);
+            return;
+        }
+        logged.whenComplete((id, throwable) -> {
+            if (throwable == null) {
+                log.warn("Message " + deliveryTag + " was already acknowledged, delivery " + id + " will be recovered from the delivery log on the next start.");
+            } else {
+                batchAcknowledger.requeue(channel, deliveryTag);
+            }
+        });
+    }
+
+    private static String idempotencyKeyOf(Message message) {
+        final String messageId = message.getMessageProperties().getMessageId();
+        return messageId == null || messageId.isEmpty() ? null : messageId;
+    }
+
+    private static boolean mayBeDuplicate(Message message, String idempotencyKey) {
+        return idempotencyKey != null || Boolean.TRUE.equals(message.getMessageProperties().isRedelivered());
+    }
+
+    private static Executor createSettlementExecutor(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(SETTLEMENT_QUEUE_SIZE),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "webhook-settlement-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
     }
 
-    private void incrementRabbitMQMetric(String status) {
-        counter.increment("message.process.device.event." + status);
+    private void incrementRabbitMQMetric(String metric, String status) {
+        counter.increment(metric + status);
     }
 
 }
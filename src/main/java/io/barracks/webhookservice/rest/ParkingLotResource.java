@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rest;
+
+import io.barracks.webhookservice.manager.ParkingLotManager;
+import io.barracks.webhookservice.manager.exception.InvalidReplayRateException;
+import io.barracks.webhookservice.model.ParkedMessage;
+import io.barracks.webhookservice.model.ReplayStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/parkinglot")
+public class ParkingLotResource {
+
+    private final ParkingLotManager parkingLotManager;
+
+    @Autowired
+    public ParkingLotResource(ParkingLotManager parkingLotManager) {
+        this.parkingLotManager = parkingLotManager;
+    }
+
+    @RequestMapping(method = RequestMethod.GET)
+    public List<ParkedMessage> getParkedMessages(
+            @RequestParam(value = "hookName", required = false) Optional<String> hookName,
+            @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+        return parkingLotManager.getParkedMessages(hookName, limit);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/count")
+    public Map<String, Long> countParkedMessages() {
+        return Collections.singletonMap("count", parkingLotManager.countParkedMessages());
+    }
+
+    @RequestMapping(method = RequestMethod.POST, value = "/replay")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ReplayStatus replay(
+            @RequestParam(value = "hookName", required = false) Optional<String> hookName,
+            @RequestParam(value = "limit", required = false) Optional<Long> limit,
+            @RequestParam(value = "rate", required = false) Optional<Double> rate
+    ) {
+        if (rate.isPresent() && !(rate.get() > 0)) {
+            throw new InvalidReplayRateException(rate.get());
+        }
+        return parkingLotManager.replay(hookName, limit, rate);
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/replay")
+    public ResponseEntity<ReplayStatus> getReplayStatus() {
+        return parkingLotManager.getReplayStatus()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rest;
+
+import io.barracks.webhookservice.manager.RateLimiterRegistry;
+import io.barracks.webhookservice.manager.exception.InvalidRateLimitException;
+import io.barracks.webhookservice.model.RateLimit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/ratelimits")
+public class RateLimitResource {
+
+    private final RateLimiterRegistry rateLimiterRegistry;
+
+    @Autowired
+    public RateLimitResource(RateLimiterRegistry rateLimiterRegistry) {
+        this.rateLimiterRegistry = rateLimiterRegistry;
+    }
+
+    @RequestMapping(method = RequestMethod.GET)
+    public Map<String, Object> getLimits() {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("default", rateLimiterRegistry.getDefaultLimit());
+        result.put("limits", rateLimiterRegistry.getLimits());
+        result.put("deferred", rateLimiterRegistry.getDeferredCalls());
+        return result;
+    }
+
+    @RequestMapping(method = RequestMethod.PUT, value = "/{key:.+}")
+    public RateLimit setLimit(
+            @PathVariable("key") String key,
+            @RequestParam("rate") double rate,
+            @RequestParam(value = "burst", required = false) Optional<Integer> burst
+    ) {
+        if (!(rate >= 0) || Double.isInfinite(rate) || (burst.isPresent() && burst.get() < 1)) {
+            throw new InvalidRateLimitException(rate, burst.orElse(null));
+        }
+        return rateLimiterRegistry.setLimit(key, RateLimit.builder()
+                .rate(rate)
+                .burst(burst.orElse(rateLimiterRegistry.getDefaultLimit().getBurst()))
+                .build());
+    }
+
+    @RequestMapping(method = RequestMethod.DELETE, value = "/{key:.+}")
+    public RateLimit resetLimit(@PathVariable("key") String key) {
+        return rateLimiterRegistry.resetLimit(key);
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.client;
+
+import io.barracks.webhookservice.utils.ChunkedContentDecoder;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DiscardingHttpAsyncClientTest {
+
+    @Test
+    public void consumer_whenResponseIsSuccessful_shouldDiscardBody() throws Exception {
+        // Given
+        final byte[] body = new byte[100000];
+        final ChunkedContentDecoder decoder = new ChunkedContentDecoder(body, 4096);
+
+        // When
+        final HttpResponse response = consume(HttpStatus.SC_OK, body.length, decoder, 1024);
+
+        // Then
+        assertThat(decoder.isCompleted()).isTrue();
+        assertThat(response.getStatusLine().getStatusCode()).isEqualTo(HttpStatus.SC_OK);
+        assertThat(response.getEntity()).isNull();
+    }
+
+    @Test
+    public void consumer_whenErrorBodyExceedsLimit_shouldKeepFirstBytes() throws Exception {
+        // Given
+        final byte[] body = new byte[100000];
+        Arrays.fill(body, (byte) 'a');
+        body[0] = 'b';
+        final ChunkedContentDecoder decoder = new ChunkedContentDecoder(body, 4096);
+
+        // When
+        final HttpResponse response = consume(HttpStatus.SC_INTERNAL_SERVER_ERROR, -1, decoder, 10);
+
+        // Then
+        assertThat(decoder.isCompleted()).isTrue();
+        assertThat(EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8)).isEqualTo("baaaaaaaaa");
+    }
+
+    @Test
+    public void consumer_whenErrorBodyFitsLimit_shouldKeepWholeBody() throws Exception {
+        // Given
+        final byte[] body = "{\"error\":\"bad request\"}".getBytes(StandardCharsets.UTF_8);
+        final ChunkedContentDecoder decoder = new ChunkedContentDecoder(body, 5);
+
+        // When
+        final HttpResponse response = consume(HttpStatus.SC_BAD_REQUEST, body.length, decoder, 1024);
+
+        // Then
+        assertThat(EntityUtils.toByteArray(response.getEntity())).isEqualTo(body);
+    }
+
+    @Test
+    public void consumer_whenLimitIsZero_shouldDiscardErrorBody() throws Exception {
+        // Given
+        final byte[] body = "error".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        final HttpResponse response = consume(HttpStatus.SC_BAD_GATEWAY, body.length, new ChunkedContentDecoder(body, 1), 0);
+
+        // Then
+        assertThat(response.getEntity()).isNull();
+    }
+
+    private static HttpResponse consume(int status, long contentLength, ChunkedContentDecoder decoder, int maxErrorBodySize) throws Exception {
+        final BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+        final BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContentLength(contentLength);
+        entity.setContentType("text/plain");
+        response.setEntity(entity);
+        final DiscardingHttpAsyncClient.BoundedResponseConsumer consumer = new DiscardingHttpAsyncClient.BoundedResponseConsumer(maxErrorBodySize);
+        consumer.responseReceived(response);
+        while (!decoder.isCompleted()) {
+            consumer.consumeContent(decoder, null);
+        }
+        consumer.responseCompleted(new BasicHttpContext());
+        return consumer.getResult();
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.barracks.webhookservice.metrics.WebhookMetrics;
+import io.barracks.webhookservice.model.*;
+import io.barracks.webhookservice.rabbitmq.HookMessageConverter;
+import io.barracks.webhookservice.utils.DeviceChangeEventHookUtils;
+import io.barracks.webhookservice.utils.DeviceEventUtils;
+import io.barracks.webhookservice.utils.PackageUtils;
+import io.barracks.webhookservice.utils.VersionUtils;
+import io.barracks.webhookservice.utils.WebhookUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.client.RestClientTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@RunWith(SpringRunner.class)
+@RestClientTest({WebhookClient.class, WebhookMetrics.class})
+public class WebhookClientPassThroughTest {
+
+    @MockBean
+    private AsyncClientHttpRequestFactory asyncClientHttpRequestFactory;
+
+    @Autowired
+    private WebhookClient webhookClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RestTemplateBuilder restTemplateBuilder;
+
+    private WebhookClient passThroughClient;
+
+    private HookMessageConverter hookMessageConverter;
+
+    @Before
+    public void setUp() {
+        passThroughClient = new WebhookClient(objectMapper, restTemplateBuilder, asyncClientHttpRequestFactory, new WebhookMetrics(), true);
+        hookMessageConverter = new HookMessageConverter(objectMapper);
+    }
+
+    @Test
+    public void postDeviceEvent_whenPassThrough_shouldSendSameBytesAsSerialization() throws Exception {
+        // Given
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder()
+                .deviceEvent(DeviceEventUtils.getDeviceEvent())
+                .hook(WebhookUtils.getWebhook())
+                .build();
+
+        // Then
+        assertSameRequest(deviceEventHook, client -> client.postDeviceEvent(readBack(deviceEventHook)));
+    }
+
+    @Test
+    public void postDeviceEvent_whenLargeEventWithUnicode_shouldSendSameBytesAsSerialization() throws Exception {
+        // Given
+        final DeviceEvent deviceEvent = DeviceEventUtils.getDeviceEvent();
+        final DeviceRequest.DeviceRequestBuilder request = deviceEvent.getRequest().toBuilder();
+        final ResolvedVersions.ResolvedVersionsBuilder response = deviceEvent.getResponse().toBuilder();
+        final ObjectNode customClientData = objectMapper.createObjectNode();
+        for (int i = 0; i < 300; i++) {
+            request.addPackage(PackageUtils.getPackage());
+            response.addAvailable(VersionUtils.getVersion());
+            customClientData.put(UUID.randomUUID().toString(), "été ☃ \"quoted\" \\ " + i);
+        }
+        customClientData.putArray("nested").addObject().put("depth", 2).putNull("nothing");
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder()
+                .deviceEvent(deviceEvent.toBuilder()
+                        .request(request.customClientData(customClientData).build())
+                        .response(response.build())
+                        .build())
+                .hook(WebhookUtils.getWebhook())
+                .build();
+
+        // Then
+        assertSameRequest(deviceEventHook, client -> client.postDeviceEvent(readBack(deviceEventHook)));
+    }
+
+    @Test
+    public void postDeviceChangeEvent_whenPassThrough_shouldSendSameBytesAsSerialization() throws Exception {
+        // Given
+        final DeviceChangeEventHook deviceChangeEventHook = DeviceChangeEventHookUtils.getDeviceChangeEventHook();
+
+        // Then
+        assertSameRequest(deviceChangeEventHook, client -> client.postDeviceChangeEvent(readBack(deviceChangeEventHook)));
+    }
+
+    @Test
+    public void postDeviceEvent_whenPassThroughDisabled_shouldSerializeEvent() throws Exception {
+        // Given
+        final DeviceEventHook deviceEventHook = readBack(DeviceEventHook.builder()
+                .deviceEvent(DeviceEventUtils.getDeviceEvent())
+                .hook(WebhookUtils.getWebhook())
+                .build());
+
+        // When
+        final CapturedRequest result = send(webhookClient, client -> client.postDeviceEvent(deviceEventHook));
+
+        // Then
+        assertThat(objectMapper.readValue(result.body, DeviceEvent.class)).isEqualTo(deviceEventHook.getDeviceEvent());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T readBack(T hook) {
+        return (T) hookMessageConverter.fromMessage(hookMessageConverter.toMessage(hook, new MessageProperties()));
+    }
+
+    private <T> void assertSameRequest(T hook, Function<WebhookClient, ?> passThroughCall) throws Exception {
+        final CapturedRequest expected = send(webhookClient, client -> hook instanceof DeviceEventHook
+                ? client.postDeviceEvent((DeviceEventHook) hook)
+                : client.postDeviceChangeEvent((DeviceChangeEventHook) hook)
+        );
+        final CapturedRequest result = send(passThroughClient, passThroughCall);
+        assertThat(result.contentType).isEqualTo(expected.contentType);
+        assertThat(result.body).isEqualTo(expected.body);
+    }
+
+    private CapturedRequest send(WebhookClient client, Function<WebhookClient, ?> call) throws Exception {
+        final List<CapturedRequest> requests = new ArrayList<>();
+        final MockRestServiceServer server = MockRestServiceServer.bindTo(client.getAsyncRestTemplate()).build();
+        server.expect(method(HttpMethod.POST))
+                .andExpect(request -> requests.add(new CapturedRequest(
+                        String.valueOf(request.getHeaders().getContentType()),
+                        ((MockClientHttpRequest) request).getBodyAsBytes()
+                )))
+                .andRespond(withSuccess());
+        call.apply(client);
+        server.verify();
+        return requests.get(0);
+    }
+
+    private static class CapturedRequest {
+
+        private final String contentType;
+
+        private final byte[] body;
+
+        CapturedRequest(String contentType, byte[] body) {
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+}
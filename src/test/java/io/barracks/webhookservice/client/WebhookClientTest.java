@@ -26,30 +26,40 @@ package io.barracks.webhookservice.client;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.barracks.webhookservice.client.exception.WebhookClientException;
+import io.barracks.webhookservice.metrics.WebhookMetrics;
 import io.barracks.webhookservice.model.*;
 import io.barracks.webhookservice.utils.DeviceChangeEventUtils;
 import io.barracks.webhookservice.utils.DeviceEventUtils;
 import io.barracks.webhookservice.utils.WebhookUtils;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.client.RestClientTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.client.AsyncClientHttpRequestFactory;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.client.MockRestServiceServer;
 
-import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 @RunWith(SpringRunner.class)
-@RestClientTest(WebhookClient.class)
+@RestClientTest({WebhookClient.class, WebhookMetrics.class})
 public class WebhookClientTest {
 
-    @Autowired
+    @MockBean
+    private AsyncClientHttpRequestFactory asyncClientHttpRequestFactory;
+
     private MockRestServiceServer mockServer;
 
     @Autowired
@@ -58,9 +68,17 @@ public class WebhookClientTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private WebhookMetrics webhookMetrics;
+
     @Value("${io.barracks.webhookservice.base_url}")
     private String baseUrl;
 
+    @Before
+    public void setUp() {
+        mockServer = MockRestServiceServer.bindTo(webhookClient.getAsyncRestTemplate()).build();
+    }
+
     @Test
     public void postDeviceEvent_whenServiceSucceeds_shouldCallResource() throws Exception {
         // Given
@@ -80,9 +98,36 @@ public class WebhookClientTest {
                 .andRespond(withSuccess());
 
         // When
-        webhookClient.postDeviceEvent(deviceEventHook);
+        final CompletableFuture<Void> result = webhookClient.postDeviceEvent(deviceEventHook);
 
         // Then
+        assertThat(result.get()).isNull();
+        mockServer.verify();
+    }
+
+    @Test
+    public void postDeviceEvent_whenIdempotencyKeyIsSet_shouldSendHeader() throws Exception {
+        // Given
+        final Hook hook = WebhookUtils.getWebhook()
+                .toBuilder()
+                .url("http://not.barracks.io/")
+                .build();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder()
+                .deviceEvent(DeviceEventUtils.getDeviceEvent())
+                .hook(hook)
+                .idempotencyKey("0123456789abcdef")
+                .build();
+
+        mockServer.expect(method(HttpMethod.POST))
+                .andExpect(requestTo(hook.getUrl()))
+                .andExpect(header(WebhookClient.IDEMPOTENCY_KEY_HEADER, "0123456789abcdef"))
+                .andRespond(withSuccess());
+
+        // When
+        final CompletableFuture<Void> result = webhookClient.postDeviceEvent(deviceEventHook);
+
+        // Then
+        assertThat(result.get()).isNull();
         mockServer.verify();
     }
 
@@ -104,9 +149,11 @@ public class WebhookClientTest {
                 .andExpect(requestTo(hook.getUrl()))
                 .andRespond(withServerError());
 
-        // When / Then
-        assertThatExceptionOfType(WebhookClientException.class)
-                .isThrownBy(() -> webhookClient.postDeviceEvent(deviceEventHook));
+        // When
+        final CompletableFuture<Void> result = webhookClient.postDeviceEvent(deviceEventHook);
+
+        // Then
+        assertThatThrownBy(result::get).hasCauseInstanceOf(WebhookClientException.class);
         mockServer.verify();
     }
 
@@ -129,9 +176,10 @@ public class WebhookClientTest {
                 .andRespond(withSuccess());
 
         // When
-        webhookClient.postDeviceChangeEvent(deviceChangeEventHook);
+        final CompletableFuture<Void> result = webhookClient.postDeviceChangeEvent(deviceChangeEventHook);
 
         // Then
+        assertThat(result.get()).isNull();
         mockServer.verify();
     }
 
@@ -153,10 +201,37 @@ public class WebhookClientTest {
                 .andExpect(requestTo(hook.getUrl()))
                 .andRespond(withServerError());
 
-        // When / Then
-        assertThatExceptionOfType(WebhookClientException.class)
-                .isThrownBy(() -> webhookClient.postDeviceChangeEvent(deviceChangeEventHook));
+        // When
+        final CompletableFuture<Void> result = webhookClient.postDeviceChangeEvent(deviceChangeEventHook);
+
+        // Then
+        assertThatThrownBy(result::get).hasCauseInstanceOf(WebhookClientException.class);
         mockServer.verify();
     }
 
+    @Test
+    public void postDeviceEvent_whenRequestFailed_shouldRecordStatusCode() throws Exception {
+        // Given
+        final Hook hook = WebhookUtils.getWebhook()
+                .toBuilder()
+                .url("http://metrics.barracks.io/")
+                .build();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder()
+                .deviceEvent(DeviceEventUtils.getDeviceEvent())
+                .hook(hook)
+                .build();
+
+        mockServer.expect(method(HttpMethod.POST))
+                .andExpect(requestTo(hook.getUrl()))
+                .andRespond(withServerError());
+
+        // When
+        webhookClient.postDeviceEvent(deviceEventHook).exceptionally(throwable -> null).get();
+
+        // Then
+        assertThat(webhookMetrics.metrics())
+                .extracting(metric -> metric.getName() + "=" + metric.getValue())
+                .contains("webhook.host.metrics.barracks.io.status.500=1", "webhook.host.metrics.barracks.io.inflight=0");
+    }
+
 }
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.endpoint;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConnectionPoolEndpointTest {
+
+    @Mock
+    private PoolingNHttpClientConnectionManager connectionManager;
+
+    private ConnectionPoolEndpoint connectionPoolEndpoint;
+
+    @Before
+    public void setUp() {
+        connectionPoolEndpoint = new ConnectionPoolEndpoint(connectionManager);
+    }
+
+    @Test
+    public void getId_shouldBeConnectionPool() {
+        assertThat(connectionPoolEndpoint.getId()).isEqualTo("connectionpool");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void invoke_shouldExposeTotalAndPerRouteStats() {
+        // Given
+        final HttpRoute slowRoute = new HttpRoute(new HttpHost("slow.io", 443, "https"));
+        final HttpRoute customerRoute = new HttpRoute(new HttpHost("customer.io", 80, "http"));
+        when(connectionManager.getRoutes()).thenReturn(new HashSet<>(Arrays.asList(slowRoute, customerRoute)));
+        when(connectionManager.getStats(slowRoute)).thenReturn(new PoolStats(20, 5, 0, 20));
+        when(connectionManager.getStats(customerRoute)).thenReturn(new PoolStats(1, 0, 3, 20));
+        when(connectionManager.getTotalStats()).thenReturn(new PoolStats(21, 5, 3, 200));
+
+        // When
+        final Map<String, Object> result = connectionPoolEndpoint.invoke();
+
+        // Then
+        assertThat(result).containsOnlyKeys("total", "routes");
+        assertThat((Map<String, Integer>) result.get("total")).isEqualTo(getStats(21, 5, 3, 200));
+        final Map<String, Object> routes = (Map<String, Object>) result.get("routes");
+        assertThat(routes.keySet()).containsExactly("http://customer.io:80", "https://slow.io:443");
+        assertThat(routes.get("http://customer.io:80")).isEqualTo(getStats(1, 0, 3, 20));
+        assertThat(routes.get("https://slow.io:443")).isEqualTo(getStats(20, 5, 0, 20));
+    }
+
+    @Test
+    public void invoke_whenNoRouteWasUsed_shouldExposeEmptyRoutes() {
+        // Given
+        when(connectionManager.getRoutes()).thenReturn(new HashSet<>());
+        when(connectionManager.getTotalStats()).thenReturn(new PoolStats(0, 0, 0, 200));
+
+        // When
+        final Map<String, Object> result = connectionPoolEndpoint.invoke();
+
+        // Then
+        assertThat(result.get("total")).isEqualTo(getStats(0, 0, 0, 200));
+        assertThat(result.get("routes")).isEqualTo(new LinkedHashMap<>());
+    }
+
+    private static Map<String, Integer> getStats(int leased, int pending, int available, int max) {
+        final Map<String, Integer> stats = new LinkedHashMap<>();
+        stats.put("leased", leased);
+        stats.put("pending", pending);
+        stats.put("available", available);
+        stats.put("max", max);
+        return stats;
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveLimitTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    public void onSample_whenLatencyStaysFlatUnderLoad_shouldGrowUpToMaximum() {
+        // Given
+        final AdaptiveLimit limit = new AdaptiveLimit(2, 10, 50);
+
+        // When
+        for (int i = 0; i < 500; i++) {
+            limit.onSample(RTT, limit.getLimit(), false);
+        }
+
+        // Then
+        assertThat(limit.getLimit()).isEqualTo(50);
+    }
+
+    @Test
+    public void onSample_whenLatencyRises_shouldBackOff() {
+        // Given
+        final AdaptiveLimit limit = new AdaptiveLimit(2, 10, 50);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(RTT, limit.getLimit(), false);
+        }
+        final int before = limit.getLimit();
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(RTT * 10, limit.getLimit(), false);
+        }
+
+        // Then
+        assertThat(limit.getLimit()).isLessThan(before);
+    }
+
+    @Test
+    public void onSample_whenCallsAreDropped_shouldDecreaseDownToMinimum() {
+        // Given
+        final AdaptiveLimit limit = new AdaptiveLimit(2, 40, 50);
+
+        // When
+        limit.onSample(RTT, 40, true);
+
+        // Then
+        assertThat(limit.getLimit()).isEqualTo(36);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(RTT, limit.getLimit(), true);
+        }
+        assertThat(limit.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    public void onSample_whenLimitIsNotUsed_shouldNotGrow() {
+        // Given
+        final AdaptiveLimit limit = new AdaptiveLimit(2, 10, 50);
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(RTT, 1, false);
+        }
+
+        // Then
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    public void fixed_shouldNeverChange() {
+        // Given
+        final AdaptiveLimit limit = AdaptiveLimit.fixed(5);
+
+        // When
+        limit.onSample(RTT, 5, true);
+        limit.onSample(RTT, 5, false);
+
+        // Then
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+}
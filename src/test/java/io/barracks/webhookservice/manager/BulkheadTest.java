@@ -0,0 +1,219 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.client.exception.WebhookClientException;
+import io.barracks.webhookservice.manager.exception.BulkheadFullException;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BulkheadTest {
+
+    @Test
+    public void submit_whenBelowConcurrencyLimit_shouldStartCallImmediately() {
+        // Given
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), 2, 1);
+        final CompletableFuture<Void> call = new CompletableFuture<>();
+
+        // When
+        final CompletableFuture<Void> result = bulkhead.submit(() -> call);
+
+        // Then
+        assertThat(bulkhead.getActiveCalls()).isEqualTo(1);
+        assertThat(bulkhead.getQueuedCalls()).isEqualTo(0);
+        call.complete(null);
+        assertThat(result).isCompleted();
+        assertThat(bulkhead.getActiveCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void submit_whenConcurrencyLimitReached_shouldQueueCallUntilSlotIsReleased() {
+        // Given
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), 1, 1);
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final AtomicInteger started = new AtomicInteger();
+        bulkhead.submit(() -> first);
+
+        // When
+        final CompletableFuture<Void> result = bulkhead.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // Then
+        assertThat(started.get()).isEqualTo(0);
+        assertThat(bulkhead.getQueuedCalls()).isEqualTo(1);
+        first.complete(null);
+        assertThat(started.get()).isEqualTo(1);
+        assertThat(result).isCompleted();
+        assertThat(bulkhead.getActiveCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void submit_whenQueueIsFull_shouldShedCall() {
+        // Given
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), 1, 0);
+        bulkhead.submit(CompletableFuture::new);
+
+        // When
+        final CompletableFuture<Void> result = bulkhead.submit(() -> CompletableFuture.completedFuture(null));
+
+        // Then
+        assertThatThrownBy(result::get).hasCauseInstanceOf(BulkheadFullException.class);
+        assertThat(bulkhead.getActiveCalls()).isEqualTo(1);
+    }
+
+    @Test
+    public void submit_whenCallFails_shouldReleaseSlotAndPropagateFailure() {
+        // Given
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), 1, 0);
+
+        // When
+        final CompletableFuture<Void> result = bulkhead.submit(() -> {
+            throw new IllegalStateException();
+        });
+
+        // Then
+        assertThatThrownBy(result::get).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(bulkhead.getActiveCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void submit_whenCallsFailWithServerErrors_shouldLowerAdaptiveLimit() {
+        // Given
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), new AdaptiveLimit(1, 10, 10), 10);
+        final CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new WebhookClientException(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            bulkhead.submit(() -> failed);
+        }
+
+        // Then
+        assertThat(bulkhead.getLimit()).isLessThan(10);
+    }
+
+    @Test
+    public void submit_whenCallsFailWithClientErrors_shouldKeepAdaptiveLimit() {
+        // Given
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), new AdaptiveLimit(1, 10, 10), 10);
+        final CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new WebhookClientException(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            bulkhead.submit(() -> failed);
+        }
+
+        // Then
+        assertThat(bulkhead.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    public void submit_whenSlotIsReleased_shouldStartQueuedCallOnExecutor() {
+        // Given
+        final List<Runnable> executed = new ArrayList<>();
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), AdaptiveLimit.fixed(1), 1, 4, executed::add);
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final AtomicInteger started = new AtomicInteger();
+        bulkhead.submit(() -> first);
+        final CompletableFuture<Void> result = bulkhead.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // When
+        first.complete(null);
+
+        // Then
+        assertThat(started.get()).isEqualTo(0);
+        assertThat(bulkhead.getActiveCalls()).isEqualTo(1);
+        assertThat(executed).hasSize(1);
+        executed.get(0).run();
+        assertThat(started.get()).isEqualTo(1);
+        assertThat(result).isCompleted();
+        assertThat(bulkhead.getActiveCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void submit_whenBothLanesAreQueued_shouldFavourHighPriorityByWeight() {
+        // Given
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), AdaptiveLimit.fixed(1), 10, 2);
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final List<String> started = new ArrayList<>();
+        bulkhead.submit(() -> first);
+        for (int i = 0; i < 3; i++) {
+            final String normal = "normal-" + i;
+            final String high = "high-" + i;
+            bulkhead.submit(Bulkhead.Priority.NORMAL, () -> {
+                started.add(normal);
+                return CompletableFuture.completedFuture(null);
+            });
+            bulkhead.submit(Bulkhead.Priority.HIGH, () -> {
+                started.add(high);
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+
+        // When
+        first.complete(null);
+
+        // Then
+        assertThat(started).containsExactly("high-0", "high-1", "normal-0", "high-2", "normal-1", "normal-2");
+        assertThat(bulkhead.getQueuedCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void submit_whenQueueIsFullOfNormalCalls_shouldShedNewestNormalCallForHighPriorityCall() {
+        // Given
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), AdaptiveLimit.fixed(1), 2, 4);
+        bulkhead.submit(CompletableFuture::new);
+        final CompletableFuture<Void> oldest = bulkhead.submit(Bulkhead.Priority.NORMAL, CompletableFuture::new);
+        final CompletableFuture<Void> newest = bulkhead.submit(Bulkhead.Priority.NORMAL, CompletableFuture::new);
+
+        // When
+        final CompletableFuture<Void> high = bulkhead.submit(Bulkhead.Priority.HIGH, CompletableFuture::new);
+
+        // Then
+        assertThatThrownBy(newest::get).hasCauseInstanceOf(BulkheadFullException.class);
+        assertThat(oldest).isNotDone();
+        assertThat(high).isNotDone();
+        assertThat(bulkhead.getQueuedCalls(Bulkhead.Priority.HIGH)).isEqualTo(1);
+        assertThat(bulkhead.getQueuedCalls(Bulkhead.Priority.NORMAL)).isEqualTo(1);
+    }
+
+}
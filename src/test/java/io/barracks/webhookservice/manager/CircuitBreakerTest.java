@@ -0,0 +1,200 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.manager.exception.BulkheadFullException;
+import io.barracks.webhookservice.manager.exception.CircuitBreakerOpenException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CircuitBreakerTest {
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private CircuitBreaker circuitBreaker;
+
+    public static CircuitBreakerSettings getSettings() {
+        return CircuitBreakerSettings.builder()
+                .failureRateThreshold(50)
+                .slowCallDurationThreshold(60000)
+                .slowCallRateThreshold(100)
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(2)
+                .waitDurationInOpenState(1000)
+                .permittedCallsInHalfOpenState(1)
+                .maxParkedCalls(1)
+                .build();
+    }
+
+    @Before
+    public void setUp() {
+        circuitBreaker = new CircuitBreaker(UUID.randomUUID().toString(), getSettings(), scheduler);
+    }
+
+    @Test
+    public void submit_whenFailureRateIsBelowThreshold_shouldStayClosed() {
+        // Given
+        circuitBreaker.submit(() -> CompletableFuture.completedFuture(null));
+        circuitBreaker.submit(() -> CompletableFuture.completedFuture(null));
+        circuitBreaker.submit(() -> CompletableFuture.completedFuture(null));
+
+        // When
+        final CompletableFuture<Void> result = circuitBreaker.submit(this::failedCall);
+
+        // Then
+        assertThatThrownBy(result::get).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void submit_whenFailureRateReachesThreshold_shouldOpenAndParkCalls() {
+        // Given
+        circuitBreaker.submit(this::failedCall);
+        circuitBreaker.submit(this::failedCall);
+        final AtomicInteger started = new AtomicInteger();
+
+        // When
+        final CompletableFuture<Void> parked = circuitBreaker.submit(() -> countedCall(started));
+        final CompletableFuture<Void> rejected = circuitBreaker.submit(() -> countedCall(started));
+
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(started.get()).isEqualTo(0);
+        assertThat(parked).isNotDone();
+        assertThat(circuitBreaker.getParkedCalls()).isEqualTo(1);
+        assertThatThrownBy(rejected::get).hasCauseInstanceOf(CircuitBreakerOpenException.class);
+    }
+
+    @Test
+    public void halfOpen_whenProbeSucceeds_shouldCloseAndReleaseParkedCalls() {
+        // Given
+        circuitBreaker.submit(this::failedCall);
+        circuitBreaker.submit(this::failedCall);
+        final AtomicInteger started = new AtomicInteger();
+        final CompletableFuture<Void> parked = circuitBreaker.submit(() -> countedCall(started));
+
+        // When
+        waitOpenDuration();
+
+        // Then
+        assertThat(started.get()).isEqualTo(1);
+        assertThat(parked).isCompleted();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.getParkedCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void halfOpen_whenProbeFails_shouldReopen() {
+        // Given
+        circuitBreaker.submit(this::failedCall);
+        circuitBreaker.submit(this::failedCall);
+        final CompletableFuture<Void> parked = circuitBreaker.submit(this::failedCall);
+
+        // When
+        waitOpenDuration();
+
+        // Then
+        assertThatThrownBy(parked::get).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void submitQueued_whenBulkheadRejectsCalls_shouldNotRecordThem() {
+        // Given
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), 1, 0);
+        final CompletableFuture<Void> inFlight = new CompletableFuture<>();
+        bulkhead.submit(() -> inFlight);
+
+        // When
+        final CompletableFuture<Void> first = circuitBreaker.submitQueued(started -> bulkhead.submit(() -> startedCall(started)));
+        final CompletableFuture<Void> second = circuitBreaker.submitQueued(started -> bulkhead.submit(() -> startedCall(started)));
+
+        // Then
+        assertThatThrownBy(first::get).hasCauseInstanceOf(BulkheadFullException.class);
+        assertThatThrownBy(second::get).hasCauseInstanceOf(BulkheadFullException.class);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void submitQueued_whenCallWaitsInBulkhead_shouldNotCountQueueTimeAsSlow() throws Exception {
+        // Given
+        circuitBreaker = new CircuitBreaker(UUID.randomUUID().toString(), getSettings().toBuilder().slowCallDurationThreshold(50).build(), scheduler);
+        final Bulkhead bulkhead = new Bulkhead(UUID.randomUUID().toString(), 1, 1);
+        final CompletableFuture<Void> slow = new CompletableFuture<>();
+        circuitBreaker.submitQueued(started -> bulkhead.submit(() -> {
+            started.run();
+            return slow;
+        }));
+        final CompletableFuture<Void> queued = circuitBreaker.submitQueued(started -> bulkhead.submit(() -> startedCall(started)));
+
+        // When
+        Thread.sleep(100);
+        slow.complete(null);
+
+        // Then
+        assertThat(queued).isCompleted();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private void waitOpenDuration() {
+        final ArgumentCaptor<Runnable> halfOpen = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(halfOpen.capture(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+        halfOpen.getValue().run();
+    }
+
+    private CompletableFuture<Void> startedCall(Runnable started) {
+        started.run();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private CompletableFuture<Void> failedCall() {
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        result.completeExceptionally(new IllegalStateException());
+        return result;
+    }
+
+    private CompletableFuture<Void> countedCall(AtomicInteger counter) {
+        counter.incrementAndGet();
+        return CompletableFuture.completedFuture(null);
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.manager.exception.ReplayInProgressException;
+import io.barracks.webhookservice.model.ParkedMessage;
+import io.barracks.webhookservice.model.ReplayStatus;
+import io.barracks.webhookservice.rabbitmq.ParkingLot;
+import io.barracks.webhookservice.rabbitmq.ReplayProgress;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParkingLotManagerTest {
+
+    @Mock
+    private ParkingLot parkingLot;
+
+    private ParkingLotManager parkingLotManager;
+
+    @Before
+    public void setUp() {
+        parkingLotManager = new ParkingLotManager(parkingLot, 50);
+    }
+
+    @After
+    public void tearDown() {
+        parkingLotManager.shutdown();
+    }
+
+    @Test
+    public void getParkedMessages_shouldBrowseParkingLot() {
+        // Given
+        final Optional<String> hookName = Optional.of(UUID.randomUUID().toString());
+        final List<ParkedMessage> expected = Collections.singletonList(ParkedMessage.builder().hookName(hookName.get()).build());
+        when(parkingLot.browse(hookName, 10)).thenReturn(expected);
+
+        // When
+        final List<ParkedMessage> result = parkingLotManager.getParkedMessages(hookName, 10);
+
+        // Then
+        assertThat(result).isEqualTo(expected);
+    }
+
+    @Test
+    public void replay_whenNoRateGiven_shouldReplayInBackgroundWithDefaultRate() {
+        // Given
+        final Optional<String> hookName = Optional.of(UUID.randomUUID().toString());
+
+        // When
+        final ReplayStatus status = parkingLotManager.replay(hookName, Optional.of(10L), Optional.empty());
+
+        // Then
+        assertThat(status.getRate()).isEqualTo(50);
+        assertThat(status.getLimit()).isEqualTo(10);
+        assertThat(status.getHookName()).isEqualTo(hookName.get());
+        verify(parkingLot, timeout(1000)).replay(eq(hookName), eq(10L), eq(50D), any(ReplayProgress.class));
+    }
+
+    @Test
+    public void replay_whenReplayIsRunning_shouldRejectNewReplay() throws Exception {
+        // Given
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        }).when(parkingLot).replay(any(), any(Long.class), any(Double.class), any());
+        parkingLotManager.replay(Optional.empty(), Optional.empty(), Optional.empty());
+        assertThat(started.await(1, TimeUnit.SECONDS)).isTrue();
+
+        // When / Then
+        assertThatExceptionOfType(ReplayInProgressException.class)
+                .isThrownBy(() -> parkingLotManager.replay(Optional.empty(), Optional.empty(), Optional.empty()));
+        assertThat(parkingLotManager.getReplayStatus()).hasValueSatisfying(status -> assertThat(status.isRunning()).isTrue());
+        release.countDown();
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.manager.exception.RateLimitExceededException;
+import io.barracks.webhookservice.model.RateLimit;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+
+    @Test
+    public void reserve_whenWithinBurst_shouldNotDelay() {
+        // Given
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(10, 3), 5000, scheduler, Runnable::run);
+        final long now = System.nanoTime();
+
+        // Then
+        assertThat(rateLimiter.reserve(now)).isLessThanOrEqualTo(0);
+        assertThat(rateLimiter.reserve(now)).isLessThanOrEqualTo(0);
+        assertThat(rateLimiter.reserve(now)).isLessThanOrEqualTo(0);
+    }
+
+    @Test
+    public void reserve_whenBurstExhausted_shouldSpaceCallsAtRate() {
+        // Given
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(10, 2), 5000, scheduler, Runnable::run);
+        final long now = System.nanoTime();
+        rateLimiter.reserve(now);
+        rateLimiter.reserve(now);
+
+        // When
+        final long first = rateLimiter.reserve(now);
+        final long second = rateLimiter.reserve(now);
+
+        // Then
+        assertThat(first).isEqualTo(SECOND / 10);
+        assertThat(second).isEqualTo(2 * SECOND / 10);
+        assertThat(rateLimiter.reserve(now + SECOND)).isLessThanOrEqualTo(0);
+    }
+
+    @Test
+    public void reserve_whenUnlimited_shouldNotDelay() {
+        // Given
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(0, 1), 5000, scheduler, Runnable::run);
+        final long now = System.nanoTime();
+
+        // Then
+        for (int i = 0; i < 100; i++) {
+            assertThat(rateLimiter.reserve(now)).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void reserve_whenRateIsTiny_shouldNotOverflowIntoUnlimited() {
+        // Given
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(Double.MIN_VALUE, 1), 5000, scheduler, Runnable::run);
+        final long now = System.nanoTime();
+
+        // When
+        final long first = rateLimiter.reserve(now);
+        final long second = rateLimiter.reserve(now);
+
+        // Then
+        assertThat(first).isLessThanOrEqualTo(0);
+        assertThat(second).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(5000));
+        assertThat(rateLimiter.reserve(now + SECOND)).isEqualTo(second - SECOND);
+    }
+
+    @Test
+    public void reserve_whenBurstIsHuge_shouldNotOverflowCapacity() {
+        // Given
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(0.001, Integer.MAX_VALUE), 5000, scheduler, Runnable::run);
+        final long now = System.nanoTime();
+
+        // Then
+        for (int i = 0; i < 100; i++) {
+            assertThat(rateLimiter.reserve(now)).isLessThanOrEqualTo(0);
+        }
+    }
+
+    @Test
+    public void reserve_whenRateIsNotANumber_shouldNotThrottle() {
+        // Given
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(Double.NaN, 1), 5000, scheduler, Runnable::run);
+
+        // Then
+        assertThat(rateLimiter.getLimit().isUnlimited()).isTrue();
+        assertThat(rateLimiter.reserve(System.nanoTime())).isEqualTo(0);
+    }
+
+    @Test
+    public void submit_whenWithinLimit_shouldCallImmediately() {
+        // Given
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(1, 1), 5000, scheduler, Runnable::run);
+        final CompletableFuture<Void> call = new CompletableFuture<>();
+
+        // When
+        final CompletableFuture<Void> result = rateLimiter.submit(() -> call);
+
+        // Then
+        assertThat(result).isSameAs(call);
+        verifyZeroInteractions(scheduler);
+    }
+
+    @Test
+    public void submit_whenThrottled_shouldDeferCallOnScheduler() {
+        // Given
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(1, 1), 5000, scheduler, Runnable::run);
+        final ArgumentCaptor<Runnable> deferred = ArgumentCaptor.forClass(Runnable.class);
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        final AtomicInteger started = new AtomicInteger();
+        rateLimiter.submit(() -> CompletableFuture.completedFuture(null));
+
+        // When
+        final CompletableFuture<Void> result = rateLimiter.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // Then
+        verify(scheduler).schedule(deferred.capture(), anyLong(), eq(TimeUnit.NANOSECONDS));
+        assertThat(started.get()).isEqualTo(0);
+        assertThat(rateLimiter.getDeferredCalls()).isEqualTo(1);
+        deferred.getValue().run();
+        assertThat(started.get()).isEqualTo(1);
+        assertThat(rateLimiter.getDeferredCalls()).isEqualTo(0);
+        assertThat(result).isCompleted();
+    }
+
+    @Test
+    public void submit_whenDeferralExceedsMaxDelay_shouldFailFastWithoutReserving() {
+        // Given
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(1, 1), 1500, scheduler, Runnable::run);
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        rateLimiter.submit(() -> CompletableFuture.completedFuture(null));
+        rateLimiter.submit(() -> CompletableFuture.completedFuture(null));
+
+        // When
+        final CompletableFuture<Void> result = rateLimiter.submit(() -> CompletableFuture.completedFuture(null));
+
+        // Then
+        assertThatThrownBy(result::join).hasCauseInstanceOf(RateLimitExceededException.class);
+        assertThat(rateLimiter.getDeferredCalls()).isEqualTo(1);
+        final long now = System.nanoTime();
+        assertThat(rateLimiter.reserve(now)).isEqualTo(rateLimiter.reserve(now));
+    }
+
+    @Test
+    public void submit_whenThrottled_shouldRunDeferredCallOnExecutor() {
+        // Given
+        final List<Runnable> executed = new ArrayList<>();
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(1, 1), 5000, scheduler, executed::add);
+        final ArgumentCaptor<Runnable> deferred = ArgumentCaptor.forClass(Runnable.class);
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        final AtomicInteger started = new AtomicInteger();
+        rateLimiter.submit(() -> CompletableFuture.completedFuture(null));
+        rateLimiter.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+        verify(scheduler).schedule(deferred.capture(), anyLong(), eq(TimeUnit.NANOSECONDS));
+
+        // When
+        deferred.getValue().run();
+
+        // Then
+        assertThat(started.get()).isEqualTo(0);
+        assertThat(executed).hasSize(1);
+        executed.get(0).run();
+        assertThat(started.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void setLimit_shouldApplyToNextReservation() {
+        // Given
+        final RateLimiter rateLimiter = new RateLimiter(UUID.randomUUID().toString(), getLimit(1, 1), 5000, scheduler, Runnable::run);
+        final long now = System.nanoTime();
+        rateLimiter.reserve(now);
+
+        // When
+        rateLimiter.setLimit(getLimit(0, 1));
+
+        // Then
+        assertThat(rateLimiter.reserve(now)).isEqualTo(0);
+    }
+
+    private static RateLimit getLimit(double rate, int burst) {
+        return RateLimit.builder().rate(rate).burst(burst).build();
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TenantSchedulerTest {
+
+    private final List<String> dispatched = new ArrayList<>();
+
+    private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+
+    @Test
+    public void submit_whenUnderLimit_shouldDispatchImmediately() {
+        // Given
+        final TenantScheduler scheduler = new TenantScheduler(2, 0, 1, new String[0]);
+
+        // When
+        submit(scheduler, "tenant");
+
+        // Then
+        assertThat(dispatched).containsExactly("tenant");
+        assertThat(scheduler.getInFlight()).isEqualTo(1);
+        assertThat(scheduler.getBacklog()).isZero();
+    }
+
+    @Test
+    public void submit_whenLimitReached_shouldQueueByTenant() {
+        // Given
+        final TenantScheduler scheduler = new TenantScheduler(1, 0, 1, new String[0]);
+        submit(scheduler, "busy");
+
+        // When
+        submit(scheduler, "busy");
+        submit(scheduler, "busy");
+        submit(scheduler, "quiet");
+
+        // Then
+        assertThat(dispatched).containsExactly("busy");
+        assertThat(scheduler.getBacklog()).isEqualTo(3);
+        assertThat(scheduler.getBacklogByTenant()).containsEntry("busy", 2).containsEntry("quiet", 1);
+    }
+
+    @Test
+    public void complete_shouldDispatchTenantsInRoundRobin() {
+        // Given
+        final TenantScheduler scheduler = new TenantScheduler(1, 0, 1, new String[0]);
+        submit(scheduler, "busy");
+        for (int i = 0; i < 4; i++) {
+            submit(scheduler, "busy");
+        }
+        submit(scheduler, "quiet");
+        submit(scheduler, "quiet");
+
+        // When
+        completeAll();
+
+        // Then
+        assertThat(dispatched).containsExactly("busy", "busy", "quiet", "busy", "quiet", "busy", "busy");
+        assertThat(scheduler.getBacklog()).isZero();
+        assertThat(scheduler.getInFlight()).isZero();
+        assertThat(scheduler.getBacklogByTenant()).isEmpty();
+    }
+
+    @Test
+    public void complete_shouldHonorTenantWeights() {
+        // Given
+        final TenantScheduler scheduler = new TenantScheduler(1, 0, 1, new String[]{"heavy:3"});
+        submit(scheduler, "light");
+        for (int i = 0; i < 4; i++) {
+            submit(scheduler, "light");
+            submit(scheduler, "heavy");
+        }
+
+        // When
+        completeAll();
+
+        // Then
+        assertThat(dispatched).containsExactly("light", "light", "heavy", "heavy", "heavy", "light", "heavy", "light", "light");
+    }
+
+    @Test
+    public void submit_whenTenantReachesItsLimit_shouldKeepDispatchingOtherTenants() {
+        // Given
+        final TenantScheduler scheduler = new TenantScheduler(10, 2, 1, new String[0]);
+        submit(scheduler, "slow");
+        submit(scheduler, "slow");
+
+        // When
+        submit(scheduler, "slow");
+        submit(scheduler, "other");
+        submit(scheduler, "other");
+
+        // Then
+        assertThat(dispatched).containsExactly("slow", "slow", "other", "other");
+        assertThat(scheduler.getBacklogByTenant()).containsOnlyKeys("slow");
+        pending.get(0).complete(null);
+        assertThat(dispatched).containsExactly("slow", "slow", "other", "other", "slow");
+        assertThat(scheduler.getBacklog()).isZero();
+    }
+
+    @Test
+    public void submit_whenCallFails_shouldReleaseAndPropagate() {
+        // Given
+        final TenantScheduler scheduler = new TenantScheduler(1, 0, 1, new String[0]);
+        final RuntimeException exception = new RuntimeException();
+        final CompletableFuture<Void> failed = scheduler.submit("tenant", () -> {
+            throw exception;
+        });
+
+        // When
+        submit(scheduler, "tenant");
+
+        // Then
+        assertThat(failed).isCompletedExceptionally();
+        assertThatThrownBy(failed::join).hasCause(exception);
+        assertThat(dispatched).containsExactly("tenant");
+    }
+
+    @Test
+    public void submit_whenDisabled_shouldDispatchEverything() {
+        // Given
+        final TenantScheduler scheduler = new TenantScheduler(0, 0, 1, new String[0]);
+
+        // When
+        submit(scheduler, "tenant");
+        submit(scheduler, "tenant");
+
+        // Then
+        assertThat(dispatched).containsExactly("tenant", "tenant");
+        assertThat(scheduler.getInFlight()).isZero();
+    }
+
+    @Test
+    public void constructor_whenWeightIsMalformed_shouldThrow() {
+        assertThatThrownBy(() -> new TenantScheduler(1, 0, 1, new String[]{"tenant"})).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private CompletableFuture<Void> submit(TenantScheduler scheduler, String tenant) {
+        return scheduler.submit(tenant, () -> {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            dispatched.add(tenant);
+            pending.add(future);
+            return future;
+        });
+    }
+
+    private void completeAll() {
+        for (int i = 0; i < pending.size(); i++) {
+            pending.get(i).complete(null);
+        }
+    }
+
+}
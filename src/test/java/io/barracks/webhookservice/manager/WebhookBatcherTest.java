@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.utils.HookUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WebhookBatcherTest {
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private WebhookBatcher webhookBatcher;
+
+    private final List<List<String>> sentBatches = new ArrayList<>();
+
+    private final CompletableFuture<Void> delivery = new CompletableFuture<>();
+
+    @Before
+    public void setUp() {
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        webhookBatcher = new WebhookBatcher(new String[]{"batched"}, 3, 500, scheduler);
+    }
+
+    @Test
+    public void isBatched_shouldOnlyMatchConfiguredHooks() {
+        assertThat(webhookBatcher.isBatched(HookUtils.getHook().toBuilder().name("batched").build())).isTrue();
+        assertThat(webhookBatcher.isBatched(HookUtils.getHook())).isFalse();
+    }
+
+    @Test
+    public void add_whenBatchIsFull_shouldSendAllEventsAtOnce() {
+        // Given
+        final String key = UUID.randomUUID().toString();
+        webhookBatcher.add(key, "a", this::send);
+        webhookBatcher.add(key, "b", this::send);
+        assertThat(sentBatches).isEmpty();
+
+        // When
+        final CompletableFuture<Void> result = webhookBatcher.add(key, "c", this::send);
+
+        // Then
+        assertThat(sentBatches).containsExactly(Arrays.asList("a", "b", "c"));
+        assertThat(result).isNotDone();
+        delivery.complete(null);
+        assertThat(result).isCompleted();
+    }
+
+    @Test
+    public void add_whenDelayExpires_shouldSendPartialBatch() {
+        // Given
+        final String key = UUID.randomUUID().toString();
+        final CompletableFuture<Void> result = webhookBatcher.add(key, "a", this::send);
+        final ArgumentCaptor<Runnable> timer = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(timer.capture(), eq(500L), eq(TimeUnit.MILLISECONDS));
+
+        // When
+        timer.getValue().run();
+
+        // Then
+        assertThat(sentBatches).containsExactly(Arrays.asList("a"));
+        delivery.completeExceptionally(new IllegalStateException());
+        assertThatThrownBy(result::get).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void add_whenBatchWasAlreadySent_shouldStartNewBatch() {
+        // Given
+        final String key = UUID.randomUUID().toString();
+        webhookBatcher.add(key, "a", this::send);
+        webhookBatcher.add(key, "b", this::send);
+        webhookBatcher.add(key, "c", this::send);
+
+        // When
+        webhookBatcher.add(key, "d", this::send);
+
+        // Then
+        assertThat(sentBatches).containsExactly(Arrays.asList("a", "b", "c"));
+    }
+
+    @Test
+    public void add_shouldScheduleFlushOutsideOfTheMapUpdate() throws Exception {
+        // Given
+        final String key = UUID.randomUUID().toString();
+        final AtomicReference<CompletableFuture<Void>> concurrentAdd = new AtomicReference<>();
+        doAnswer(invocation -> {
+            final CompletableFuture<CompletableFuture<Void>> added = CompletableFuture.supplyAsync(() -> webhookBatcher.add(key, "b", this::send));
+            concurrentAdd.set(added.get(1, TimeUnit.SECONDS));
+            return mock(ScheduledFuture.class);
+        }).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+        // When
+        webhookBatcher.add(key, "a", this::send);
+
+        // Then
+        assertThat(concurrentAdd.get()).isNotNull();
+        webhookBatcher.add(key, "c", this::send);
+        assertThat(sentBatches).containsExactly(Arrays.asList("a", "b", "c"));
+    }
+
+    private CompletableFuture<Void> send(List<String> events) {
+        sentBatches.add(new ArrayList<>(events));
+        return delivery;
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import io.barracks.webhookservice.utils.HookUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WebhookCoalescerTest {
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private WebhookCoalescer webhookCoalescer;
+
+    private final List<String> sent = new ArrayList<>();
+
+    private final CompletableFuture<Void> delivery = new CompletableFuture<>();
+
+    @Before
+    public void setUp() {
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        webhookCoalescer = new WebhookCoalescer(new String[]{"coalesced"}, 500, scheduler);
+    }
+
+    @Test
+    public void isCoalesced_shouldOnlyMatchConfiguredHooks() {
+        assertThat(webhookCoalescer.isCoalesced(HookUtils.getHook().toBuilder().name("coalesced").build())).isTrue();
+        assertThat(webhookCoalescer.isCoalesced(HookUtils.getHook())).isFalse();
+    }
+
+    @Test
+    public void submit_whenWindowExpires_shouldOnlySendNewestEvent() {
+        // Given
+        final String key = UUID.randomUUID().toString();
+        final ArgumentCaptor<Runnable> timer = ArgumentCaptor.forClass(Runnable.class);
+        final CompletableFuture<Void> first = webhookCoalescer.submit(key, () -> send("first"));
+        final CompletableFuture<Void> second = webhookCoalescer.submit(key, () -> send("second"));
+        final CompletableFuture<Void> third = webhookCoalescer.submit(key, () -> send("third"));
+
+        // When
+        verify(scheduler).schedule(timer.capture(), eq(500L), eq(TimeUnit.MILLISECONDS));
+        timer.getValue().run();
+
+        // Then
+        assertThat(first).isCompleted();
+        assertThat(second).isCompleted();
+        assertThat(sent).containsExactly("third");
+        assertThat(third).isNotDone();
+        delivery.complete(null);
+        assertThat(third).isCompleted();
+        assertThat(webhookCoalescer.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void submit_whenKeysDiffer_shouldNotCoalesce() {
+        // Given
+        final ArgumentCaptor<Runnable> timers = ArgumentCaptor.forClass(Runnable.class);
+        final CompletableFuture<Void> first = webhookCoalescer.submit("unit-1", () -> send("first"));
+        final CompletableFuture<Void> second = webhookCoalescer.submit("unit-2", () -> send("second"));
+
+        // When
+        verify(scheduler, times(2)).schedule(timers.capture(), anyLong(), any(TimeUnit.class));
+        timers.getAllValues().forEach(Runnable::run);
+
+        // Then
+        assertThat(sent).containsExactlyInAnyOrder("first", "second");
+        assertThat(first).isNotDone();
+        assertThat(second).isNotDone();
+    }
+
+    @Test
+    public void submit_whenNewestDeliveryFails_shouldPropagateFailure() {
+        // Given
+        final String key = UUID.randomUUID().toString();
+        final ArgumentCaptor<Runnable> timer = ArgumentCaptor.forClass(Runnable.class);
+        final CompletableFuture<Void> result = webhookCoalescer.submit(key, () -> send("first"));
+        verify(scheduler).schedule(timer.capture(), anyLong(), any(TimeUnit.class));
+        timer.getValue().run();
+
+        // When
+        delivery.completeExceptionally(new IllegalStateException());
+
+        // Then
+        assertThatThrownBy(result::get).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    private CompletableFuture<Void> send(String event) {
+        sent.add(event);
+        return delivery;
+    }
+
+}
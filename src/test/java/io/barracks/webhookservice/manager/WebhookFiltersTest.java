@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.manager;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import io.barracks.webhookservice.model.DeviceEvent;
+import io.barracks.webhookservice.model.Hook;
+import io.barracks.webhookservice.model.ResolvedVersions;
+import org.junit.Test;
+
+import static io.barracks.webhookservice.utils.DeviceEventUtils.getDeviceEvent;
+import static io.barracks.webhookservice.utils.HookUtils.getHook;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WebhookFiltersTest {
+
+    private final DeviceEvent deviceEvent = getDeviceEvent();
+
+    private final DeviceEvent emptyEvent = deviceEvent.toBuilder().response(ResolvedVersions.builder().build()).build();
+
+    @Test
+    public void accepts_whenHookHasNoFilter_shouldAcceptEverything() {
+        // Given
+        final WebhookFilters webhookFilters = new WebhookFilters(new String[]{"other:changed"});
+        final Hook hook = getHook();
+
+        // Then
+        assertThat(webhookFilters.isFiltered(hook)).isFalse();
+        assertThat(webhookFilters.accepts(hook, emptyEvent)).isTrue();
+    }
+
+    @Test
+    public void accepts_whenChangedOrAvailableRequired_shouldCheckResolvedVersions() {
+        assertThat(WebhookFilters.compile("changed").test(deviceEvent)).isTrue();
+        assertThat(WebhookFilters.compile("changed").test(emptyEvent)).isFalse();
+        assertThat(WebhookFilters.compile("available").test(deviceEvent)).isTrue();
+        assertThat(WebhookFilters.compile("available").test(emptyEvent)).isFalse();
+    }
+
+    @Test
+    public void accepts_whenPackageReferenceRequired_shouldMatchAnyListedReference() {
+        // Given
+        final String reference = deviceEvent.getRequest().getPackages().get(0).getReference();
+
+        // Then
+        assertThat(WebhookFilters.compile("package=unknown|" + reference).test(deviceEvent)).isTrue();
+        assertThat(WebhookFilters.compile("package=unknown").test(deviceEvent)).isFalse();
+    }
+
+    @Test
+    public void accepts_whenCustomClientDataRequired_shouldCompareFieldValue() {
+        // Given
+        final DeviceEvent event = deviceEvent.toBuilder()
+                .request(deviceEvent.getRequest().toBuilder()
+                        .customClientData(JsonNodeFactory.instance.objectNode().put("channel", "beta").put("fleet", 42))
+                        .build())
+                .build();
+
+        // Then
+        assertThat(WebhookFilters.compile("data.channel=beta").test(event)).isTrue();
+        assertThat(WebhookFilters.compile("data.fleet=42").test(event)).isTrue();
+        assertThat(WebhookFilters.compile("data.channel=stable").test(event)).isFalse();
+        assertThat(WebhookFilters.compile("data.missing=beta").test(event)).isFalse();
+    }
+
+    @Test
+    public void accepts_shouldCombinePredicatesWithAndAndRulesWithOr() {
+        // Given
+        final Hook hook = getHook();
+        final WebhookFilters webhookFilters = new WebhookFilters(new String[]{
+                hook.getName() + ":changed&package=unknown",
+                hook.getName() + ":available"
+        });
+
+        // Then
+        assertThat(webhookFilters.isFiltered(hook)).isTrue();
+        assertThat(webhookFilters.accepts(hook, deviceEvent)).isTrue();
+        assertThat(webhookFilters.accepts(hook, emptyEvent)).isFalse();
+        assertThat(webhookFilters.accepts(hook, null)).isFalse();
+    }
+
+    @Test
+    public void compile_whenPredicateIsUnknown_shouldFail() {
+        assertThatThrownBy(() -> WebhookFilters.compile("changed&unknown")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new WebhookFilters(new String[]{"changed"})).isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
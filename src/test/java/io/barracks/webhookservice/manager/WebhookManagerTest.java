@@ -24,33 +24,55 @@
 
 package io.barracks.webhookservice.manager;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.barracks.webhookservice.client.WebhookClient;
 import io.barracks.webhookservice.model.DeviceChangeEventHook;
 import io.barracks.webhookservice.model.DeviceEvent;
 import io.barracks.webhookservice.model.DeviceEventHook;
+import io.barracks.webhookservice.model.Hook;
+import io.barracks.webhookservice.model.RateLimit;
+import io.barracks.webhookservice.model.RawJson;
+import io.barracks.webhookservice.model.ResolvedVersions;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
 import static io.barracks.webhookservice.utils.DeviceChangeEventUtils.getDeviceChangeEvent;
 import static io.barracks.webhookservice.utils.DeviceEventUtils.getDeviceEvent;
 import static io.barracks.webhookservice.utils.WebhookUtils.getWebhook;
-import static org.mockito.Mockito.doNothing;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class WebhookManagerTest {
 
-    @InjectMocks
-    @Spy
     private WebhookManager webhookManager;
 
+    private final Hook batchedHook = getWebhook();
+
+    private final Hook coalescedHook = getWebhook();
+
+    private final Hook filteredHook = getWebhook();
+
     @Mock
     private WebhookClient webhookClient;
 
+    @Before
+    public void setUp() {
+        webhookManager = getWebhookManager(new BulkheadRegistry(10, 10), new TenantScheduler(10, 0, 1, new String[0]));
+    }
+
     @Test
     public void postDeviceEventHook_shouldCallClient() {
         //Given
@@ -60,13 +82,39 @@ public class WebhookManagerTest {
                 .hook(getWebhook())
                 .build();
 
-        doNothing().when(webhookClient).postDeviceEvent(deviceEventHook);
+        final CompletableFuture<Void> expected = new CompletableFuture<>();
+        when(webhookClient.postDeviceEvent(deviceEventHook)).thenReturn(expected);
 
         //When
-        webhookManager.postDeviceEventHook(deviceEventHook);
+        final CompletableFuture<Void> result = webhookManager.postDeviceEventHook(deviceEventHook);
+
+        //Then
+        verify(webhookClient).postDeviceEvent(deviceEventHook);
+        assertThat(result).isNotDone();
+        expected.complete(null);
+        assertThat(result).isCompleted();
+    }
+
+    @Test
+    public void postDeviceEventHook_whenEventIsRaw_shouldNotParseIt() {
+        //Given
+        final byte[] json = "{\"request\":{\"unitId\":\"unit\",\"userId\":\"tenant\"},\"response\":{}}".getBytes(StandardCharsets.UTF_8);
+        final RawJson rawDeviceEvent = spy(new RawJson(new ObjectMapper(), json, 0, json.length));
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder()
+                .rawDeviceEvent(rawDeviceEvent)
+                .hook(getWebhook())
+                .build();
+        when(webhookClient.postDeviceEvent(deviceEventHook)).thenReturn(CompletableFuture.completedFuture(null));
+
+        //When
+        final CompletableFuture<Void> result = webhookManager.postDeviceEventHook(deviceEventHook);
 
         //Then
+        assertThat(result).isCompleted();
         verify(webhookClient).postDeviceEvent(deviceEventHook);
+        verify(rawDeviceEvent).readText("request", "userId");
+        verify(rawDeviceEvent, never()).read(any());
+        assertThat(deviceEventHook.getUserId()).isEqualTo("tenant");
     }
 
     @Test
@@ -77,13 +125,132 @@ public class WebhookManagerTest {
                 .hook(getWebhook())
                 .build();
 
-        doNothing().when(webhookClient).postDeviceChangeEvent(deviceChangeEventHook);
+        final CompletableFuture<Void> expected = new CompletableFuture<>();
+        when(webhookClient.postDeviceChangeEvent(deviceChangeEventHook)).thenReturn(expected);
 
         //When
-        webhookManager.postDeviceChangeEventHook(deviceChangeEventHook);
+        final CompletableFuture<Void> result = webhookManager.postDeviceChangeEventHook(deviceChangeEventHook);
 
         //Then
         verify(webhookClient).postDeviceChangeEvent(deviceChangeEventHook);
+        assertThat(result).isNotDone();
+        expected.complete(null);
+        assertThat(result).isCompleted();
+    }
+
+    @Test
+    public void postDeviceEventHook_whenCallsAreQueuedInBulkhead_shouldNotHoldTenantSlots() {
+        //Given
+        final TenantScheduler tenantScheduler = new TenantScheduler(2, 0, 1, new String[0]);
+        webhookManager = getWebhookManager(new BulkheadRegistry(1, 10), tenantScheduler);
+        final Hook deadHook = getWebhook();
+        final Hook healthyHook = getWebhook();
+        when(webhookClient.postDeviceEvent(any())).thenAnswer(invocation ->
+                deadHook.equals(((DeviceEventHook) invocation.getArguments()[0]).getHook())
+                        ? new CompletableFuture<>()
+                        : CompletableFuture.completedFuture(null)
+        );
+        for (int i = 0; i < 5; i++) {
+            webhookManager.postDeviceEventHook(DeviceEventHook.builder().deviceEvent(getDeviceEvent()).hook(deadHook).build());
+        }
+
+        //When
+        final CompletableFuture<Void> result = webhookManager.postDeviceEventHook(
+                DeviceEventHook.builder().deviceEvent(getDeviceEvent()).hook(healthyHook).build()
+        );
+
+        //Then
+        assertThat(result).isCompleted();
+        assertThat(tenantScheduler.getInFlight()).isEqualTo(1);
+        assertThat(tenantScheduler.getBacklog()).isZero();
+    }
+
+    @Test
+    public void postDeviceEventHook_whenHookIsBatched_shouldPostEventsTogether() {
+        //Given
+        final DeviceEvent first = getDeviceEvent();
+        final DeviceEvent second = getDeviceEvent();
+        final CompletableFuture<Void> expected = new CompletableFuture<>();
+        when(webhookClient.postEvents(batchedHook.getUrl(), Arrays.asList(first, second))).thenReturn(expected);
+
+        //When
+        final CompletableFuture<Void> firstResult = webhookManager.postDeviceEventHook(
+                DeviceEventHook.builder().deviceEvent(first).hook(batchedHook).build()
+        );
+        final CompletableFuture<Void> secondResult = webhookManager.postDeviceEventHook(
+                DeviceEventHook.builder().deviceEvent(second).hook(batchedHook).build()
+        );
+
+        //Then
+        verify(webhookClient).postEvents(batchedHook.getUrl(), Arrays.asList(first, second));
+        verify(webhookClient, never()).postDeviceEvent(any());
+        assertThat(firstResult).isNotDone();
+        expected.complete(null);
+        assertThat(firstResult).isCompleted();
+        assertThat(secondResult).isCompleted();
+    }
+
+    @Test
+    public void postDeviceEventHook_whenHookIsCoalesced_shouldCompleteSupersededEventsWithoutPosting() {
+        //Given
+        final DeviceEvent first = getDeviceEvent();
+        final DeviceEvent second = first.toBuilder().build();
+
+        //When
+        final CompletableFuture<Void> firstResult = webhookManager.postDeviceEventHook(
+                DeviceEventHook.builder().deviceEvent(first).hook(coalescedHook).build()
+        );
+        final CompletableFuture<Void> secondResult = webhookManager.postDeviceEventHook(
+                DeviceEventHook.builder().deviceEvent(second).hook(coalescedHook).build()
+        );
+
+        //Then
+        assertThat(firstResult).isCompleted();
+        assertThat(secondResult).isNotDone();
+        verify(webhookClient, never()).postDeviceEvent(any());
+    }
+
+    @Test
+    public void postDeviceEventHook_whenEventDoesNotMatchHookFilters_shouldSkipIt() {
+        //Given
+        final DeviceEvent deviceEvent = getDeviceEvent().toBuilder()
+                .response(ResolvedVersions.builder().build())
+                .build();
+
+        //When
+        final CompletableFuture<Void> result = webhookManager.postDeviceEventHook(
+                DeviceEventHook.builder().deviceEvent(deviceEvent).hook(filteredHook).build()
+        );
+
+        //Then
+        assertThat(result).isCompleted();
+        verify(webhookClient, never()).postDeviceEvent(any());
+    }
+
+    @Test
+    public void postDeviceEventHook_whenEventMatchesHookFilters_shouldCallClient() {
+        //Given
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder().deviceEvent(getDeviceEvent()).hook(filteredHook).build();
+        when(webhookClient.postDeviceEvent(deviceEventHook)).thenReturn(CompletableFuture.completedFuture(null));
+
+        //When
+        webhookManager.postDeviceEventHook(deviceEventHook);
+
+        //Then
+        verify(webhookClient).postDeviceEvent(deviceEventHook);
+    }
+
+    private WebhookManager getWebhookManager(BulkheadRegistry bulkheadRegistry, TenantScheduler tenantScheduler) {
+        return new WebhookManager(
+                webhookClient,
+                bulkheadRegistry,
+                new CircuitBreakerRegistry(CircuitBreakerTest.getSettings()),
+                new WebhookBatcher(new String[]{batchedHook.getName()}, 2, 60000, Executors.newSingleThreadScheduledExecutor()),
+                new RateLimiterRegistry(RateLimit.builder().build(), false, 5000, Executors.newSingleThreadScheduledExecutor(), Executors.newSingleThreadExecutor()),
+                new WebhookCoalescer(new String[]{coalescedHook.getName()}, 60000, Executors.newSingleThreadScheduledExecutor()),
+                new WebhookFilters(new String[]{filteredHook.getName() + ":changed"}),
+                tenantScheduler
+        );
     }
 
 }
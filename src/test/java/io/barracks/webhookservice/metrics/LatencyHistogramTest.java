@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void indexOf_shouldBeContainedInItsBucket() {
+        for (long micros = 0; micros < 10_000_000; micros += 1 + micros / 7) {
+            final int index = LatencyHistogram.indexOf(micros);
+            assertThat(LatencyHistogram.upperBoundOf(index)).isGreaterThanOrEqualTo(micros);
+            if (index > 0) {
+                assertThat(LatencyHistogram.upperBoundOf(index - 1)).isLessThan(micros);
+            }
+        }
+    }
+
+    @Test
+    public void getPercentileMillis_shouldStayWithinBucketPrecision() {
+        // Given
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        // When
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        // Then
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMaxMillis()).isEqualTo(1000.0);
+        assertThat(histogram.getPercentileMillis(50)).isCloseTo(500.0, within(500.0 / 16));
+        assertThat(histogram.getPercentileMillis(99)).isCloseTo(990.0, within(990.0 / 16));
+        assertThat(histogram.getPercentileMillis(100)).isEqualTo(1000.0);
+    }
+
+    @Test
+    public void getPercentileMillis_whenEmpty_shouldReturnZero() {
+        assertThat(new LatencyHistogram().getPercentileMillis(99)).isEqualTo(0.0);
+    }
+
+}
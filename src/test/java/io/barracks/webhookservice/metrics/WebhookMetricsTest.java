@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.metrics;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WebhookMetricsTest {
+
+    private final WebhookMetrics webhookMetrics = new WebhookMetrics();
+
+    @Test
+    public void metrics_shouldExposeMessageAndRequestMetrics() {
+        // Given
+        final long receivedAt = webhookMetrics.messageReceived();
+        final long firstRequest = webhookMetrics.requestStarted("http://customer.io/hook");
+        final long secondRequest = webhookMetrics.requestStarted("https://customer.io:8443/other");
+        webhookMetrics.requestStarted("http://slow.io/hook");
+
+        // When
+        webhookMetrics.requestCompleted("http://customer.io/hook", firstRequest, 200);
+        webhookMetrics.requestCompleted("https://customer.io:8443/other", secondRequest, 0);
+        webhookMetrics.messageProcessed("hookName", receivedAt, new Date(), true);
+        webhookMetrics.messageProcessed(null, webhookMetrics.messageReceived(), null, false);
+        final Map<String, Number> metrics = webhookMetrics.metrics()
+                .stream()
+                .collect(Collectors.toMap(Metric::getName, Metric::getValue));
+
+        // Then
+        assertThat(metrics)
+                .containsEntry("webhook.messages.inflight", 0)
+                .containsEntry("webhook.queue.latency.count", 1L)
+                .containsEntry("webhook.processing.time.count", 2L)
+                .containsEntry("webhook.http.roundtrip.count", 2L)
+                .containsEntry("webhook.host.customer.io.inflight", 0)
+                .containsEntry("webhook.host.customer.io.roundtrip.count", 2L)
+                .containsEntry("webhook.host.customer.io.status.200", 1L)
+                .containsEntry("webhook.host.customer.io.status.error", 1L)
+                .containsEntry("webhook.host.slow.io.inflight", 1)
+                .containsEntry("webhook.hook.hookName.success", 1L)
+                .containsEntry("webhook.hook.unknown.error", 1L);
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import com.rabbitmq.client.Channel;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BatchAcknowledgerTest {
+
+    @Mock
+    private Channel channel;
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private BatchAcknowledger batchAcknowledger;
+
+    @Before
+    public void setUp() {
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        batchAcknowledger = new BatchAcknowledger(3, 20, scheduler);
+    }
+
+    @Test
+    public void acknowledge_whenAllTrackedMessagesComplete_shouldAckOnceUpToLastTag() throws Exception {
+        // Given
+        track(1, 2, 3);
+
+        // When
+        batchAcknowledger.acknowledge(channel, 2);
+        batchAcknowledger.acknowledge(channel, 3);
+        batchAcknowledger.acknowledge(channel, 1);
+
+        // Then
+        verify(channel).basicAck(3, true);
+        verify(channel, never()).basicAck(anyLong(), eq(false));
+    }
+
+    @Test
+    public void acknowledge_whenEarlierMessageIsInFlight_shouldWait() throws Exception {
+        // Given
+        track(1, 2);
+
+        // When
+        batchAcknowledger.acknowledge(channel, 2);
+
+        // Then
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void acknowledge_whenEarlierMessageIsStillInFlight_shouldAckLaterMessageOnTimeout() throws Exception {
+        // Given
+        track(1, 2, 3);
+        batchAcknowledger.acknowledge(channel, 2);
+        final ArgumentCaptor<Runnable> timer = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(timer.capture(), eq(20L), eq(TimeUnit.MILLISECONDS));
+
+        // When
+        timer.getValue().run();
+
+        // Then
+        verify(channel).basicAck(2, false);
+        verify(channel, never()).basicAck(eq(1L), anyBoolean());
+        verify(channel, never()).basicAck(anyLong(), eq(true));
+    }
+
+    @Test
+    public void acknowledge_whenHeadCompletesBeforeTimeout_shouldAckRunAtOnce() throws Exception {
+        // Given
+        track(1, 2, 3, 4, 5);
+        batchAcknowledger.acknowledge(channel, 2);
+        batchAcknowledger.acknowledge(channel, 1);
+        final ArgumentCaptor<Runnable> timer = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler, times(1)).schedule(timer.capture(), eq(20L), eq(TimeUnit.MILLISECONDS));
+
+        // When
+        timer.getValue().run();
+
+        // Then
+        verify(channel).basicAck(2, true);
+        verify(channel, never()).basicAck(anyLong(), eq(false));
+    }
+
+    @Test
+    public void acknowledge_whenNothingElseIsPending_shouldAckImmediately() throws Exception {
+        // Given
+        track(1);
+
+        // When
+        batchAcknowledger.acknowledge(channel, 1);
+
+        // Then
+        verify(channel).basicAck(1, false);
+    }
+
+    @Test
+    public void acknowledge_whenBatchSizeIsReached_shouldAckWithoutWaitingForLaterMessages() throws Exception {
+        // Given
+        track(1, 2, 3, 4, 5);
+
+        // When
+        batchAcknowledger.acknowledge(channel, 1);
+        batchAcknowledger.acknowledge(channel, 2);
+        batchAcknowledger.acknowledge(channel, 3);
+
+        // Then
+        verify(channel).basicAck(3, true);
+    }
+
+    @Test
+    public void requeue_shouldNackIndividuallyAndAckTheRest() throws Exception {
+        // Given
+        track(1, 2, 3);
+
+        // When
+        batchAcknowledger.acknowledge(channel, 1);
+        batchAcknowledger.requeue(channel, 2);
+        batchAcknowledger.acknowledge(channel, 3);
+
+        // Then
+        final InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicNack(2, false, true);
+        inOrder.verify(channel).basicAck(3, true);
+    }
+
+    @Test
+    public void reject_whenLastMessageOfRunIsRejected_shouldOnlyAckUpToLastAcknowledgedMessage() throws Exception {
+        // Given
+        track(1, 2);
+
+        // When
+        batchAcknowledger.acknowledge(channel, 1);
+        batchAcknowledger.reject(channel, 2);
+
+        // Then
+        final InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicReject(2, false);
+        inOrder.verify(channel).basicAck(1, false);
+        verify(channel, never()).basicAck(eq(2L), anyBoolean());
+    }
+
+    @Test
+    public void track_whenMessageIsAlreadyTracked_shouldKeepBatchingAcks() throws Exception {
+        // Given
+        track(1, 2, 2, 3);
+
+        // When
+        batchAcknowledger.acknowledge(channel, 1);
+        batchAcknowledger.acknowledge(channel, 2);
+        batchAcknowledger.acknowledge(channel, 3);
+
+        // Then
+        verify(channel).basicAck(3, true);
+        verify(channel, never()).basicAck(anyLong(), eq(false));
+    }
+
+    @Test
+    public void acknowledge_whenDeliveryTagsHaveGap_shouldNotAckUntrackedMessages() throws Exception {
+        // Given
+        track(1, 3, 4);
+
+        // When
+        batchAcknowledger.acknowledge(channel, 1);
+        batchAcknowledger.acknowledge(channel, 3);
+        batchAcknowledger.acknowledge(channel, 4);
+
+        // Then
+        final InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicAck(1, false);
+        inOrder.verify(channel).basicAck(3, false);
+        inOrder.verify(channel).basicAck(4, false);
+    }
+
+    @Test
+    public void acknowledge_whenMessageWasNotTracked_shouldAckIt() throws Exception {
+        // When
+        batchAcknowledger.acknowledge(channel, 7);
+
+        // Then
+        verify(channel).basicAck(7, false);
+    }
+
+    private void track(long... deliveryTags) {
+        for (long deliveryTag : deliveryTags) {
+            batchAcknowledger.track(channel, deliveryTag);
+        }
+    }
+
+}
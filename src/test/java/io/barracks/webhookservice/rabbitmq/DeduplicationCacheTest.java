@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeduplicationCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1000000L);
+
+    @Test
+    public void contains_shouldReturnAddedKeys() {
+        // Given
+        final DeduplicationCache cache = new DeduplicationCache(1024, 60000, now::get);
+
+        // When
+        cache.add(42L);
+        cache.add(0L);
+
+        // Then
+        assertThat(cache.contains(42L)).isTrue();
+        assertThat(cache.contains(0L)).isTrue();
+        assertThat(cache.contains(43L)).isFalse();
+    }
+
+    @Test
+    public void contains_whenWindowElapsed_shouldForgetKeys() {
+        // Given
+        final DeduplicationCache cache = new DeduplicationCache(1024, 60000, now::get);
+        cache.add(42L);
+
+        // When
+        now.addAndGet(40000);
+        cache.add(43L);
+
+        // Then
+        assertThat(cache.contains(42L)).isTrue();
+        now.addAndGet(30000);
+        assertThat(cache.contains(42L)).isFalse();
+        assertThat(cache.contains(43L)).isTrue();
+    }
+
+    @Test
+    public void add_whenCapacityReached_shouldKeepMemoryBounded() {
+        // Given
+        final DeduplicationCache cache = new DeduplicationCache(1024, 60000, now::get);
+
+        // When
+        for (long key = 1; key <= 100000; key++) {
+            cache.add(DeduplicationCache.hash(Long.toString(key).getBytes()));
+        }
+
+        // Then
+        assertThat(cache.size()).isLessThanOrEqualTo(1024);
+        assertThat(cache.contains(DeduplicationCache.hash("100000".getBytes()))).isTrue();
+        assertThat(cache.contains(DeduplicationCache.hash("1".getBytes()))).isFalse();
+    }
+
+    @Test
+    public void hash_shouldBeStable() {
+        assertThat(DeduplicationCache.hash("{\"hook\":{}}".getBytes()))
+                .isEqualTo(DeduplicationCache.hash("{\"hook\":{}}".getBytes()))
+                .isNotEqualTo(DeduplicationCache.hash("{\"hook\":[]}".getBytes()));
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DeliveryExecutorTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void submit_whenDisabled_shouldRunOnCallerThread() {
+        // Given
+        final DeliveryExecutor deliveryExecutor = new DeliveryExecutor(null, 1);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+
+        // When
+        final CompletableFuture<Void> result = deliveryExecutor.submit(() -> {
+            thread.set(Thread.currentThread());
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // Then
+        assertThat(result).isCompleted();
+        assertThat(thread.get()).isEqualTo(Thread.currentThread());
+    }
+
+    @Test
+    public void submit_whenEnabled_shouldRunOnExecutorAndPropagateResult() throws Exception {
+        // Given
+        final DeliveryExecutor deliveryExecutor = new DeliveryExecutor(executor, 2);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        final CompletableFuture<Void> delivery = new CompletableFuture<>();
+
+        // When
+        final CompletableFuture<Void> result = deliveryExecutor.submit(() -> {
+            thread.set(Thread.currentThread());
+            return delivery;
+        });
+        Thread.sleep(50);
+
+        // Then
+        assertThat(result).isNotDone();
+        assertThat(deliveryExecutor.getInFlight()).isEqualTo(1);
+        delivery.complete(null);
+        result.get(1, TimeUnit.SECONDS);
+        assertThat(thread.get()).isNotEqualTo(Thread.currentThread());
+        assertThat(deliveryExecutor.getInFlight()).isZero();
+    }
+
+    @Test
+    public void submit_whenDeliveryFails_shouldReleaseAndPropagateCause() throws Exception {
+        // Given
+        final DeliveryExecutor deliveryExecutor = new DeliveryExecutor(executor, 1);
+        final RuntimeException exception = new RuntimeException();
+
+        // When
+        final CompletableFuture<Void> result = deliveryExecutor.submit(() -> {
+            throw exception;
+        });
+
+        // Then
+        assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS)).hasCause(exception);
+        assertThat(deliveryExecutor.getInFlight()).isZero();
+    }
+
+    @Test
+    public void submit_whenInFlightLimitReached_shouldBlockCallerUntilCompletion() throws Exception {
+        // Given
+        final DeliveryExecutor deliveryExecutor = new DeliveryExecutor(executor, 1);
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        deliveryExecutor.submit(() -> first);
+        final CountDownLatch submitted = new CountDownLatch(1);
+
+        // When
+        final Thread caller = new Thread(() -> {
+            deliveryExecutor.submit(() -> CompletableFuture.completedFuture(null));
+            submitted.countDown();
+        });
+        caller.start();
+
+        // Then
+        assertThat(submitted.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        first.complete(null);
+        assertThat(submitted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void createExecutor_shouldAlwaysProvideAnExecutor() throws Exception {
+        // Given
+        final ExecutorService created = DeliveryExecutor.createExecutor(true, 2);
+
+        // When
+        final CompletableFuture<String> result = CompletableFuture.supplyAsync(() -> "done", created);
+
+        // Then
+        assertThat(result.get(1, TimeUnit.SECONDS)).isEqualTo("done");
+        created.shutdown();
+    }
+
+    @Test
+    public void prefetchFor_whenEnabled_shouldLetConsumersFillTheInFlightBudget() {
+        // Given
+        final DeliveryExecutor deliveryExecutor = new DeliveryExecutor(executor, 10000);
+
+        // When
+        final int prefetch = deliveryExecutor.prefetchFor(250, 16);
+
+        // Then
+        assertThat(prefetch).isEqualTo(625);
+        assertThat(deliveryExecutor.prefetchFor(1000, 16)).isEqualTo(1000);
+    }
+
+    @Test
+    public void prefetchFor_whenDisabled_shouldKeepConfiguredPrefetch() {
+        // Given
+        final DeliveryExecutor deliveryExecutor = new DeliveryExecutor(null, 10000);
+
+        // When
+        final int prefetch = deliveryExecutor.prefetchFor(250, 16);
+
+        // Then
+        assertThat(prefetch).isEqualTo(250);
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class DeliveryLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void append_shouldCompleteOnceSynced() throws Exception {
+        // Given
+        final DeliveryLog deliveryLog = open(10);
+
+        // When
+        final CompletableFuture<Long> result = deliveryLog.append(getMessage("first"));
+
+        // Then
+        assertThat(result).isNotDone();
+        deliveryLog.sync();
+        assertThat(result).isCompleted();
+        assertThat(deliveryLog.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void append_whenDisabled_shouldNotLog() throws Exception {
+        // Given
+        final DeliveryLog deliveryLog = new DeliveryLog(false, folder.getRoot().toPath(), SEGMENT_SIZE, 10, mock(ScheduledExecutorService.class));
+
+        // Then
+        assertThat(deliveryLog.append(getMessage("first"))).isNull();
+        assertThat(folder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void append_whenTooManyDeliveriesArePending_shouldNotLog() throws Exception {
+        // Given
+        final DeliveryLog deliveryLog = open(1);
+        deliveryLog.append(getMessage("first"));
+
+        // Then
+        assertThat(deliveryLog.append(getMessage("second"))).isNull();
+    }
+
+    @Test
+    public void open_shouldRecoverUnfinishedDeliveries() throws Exception {
+        // Given
+        final DeliveryLog deliveryLog = open(10);
+        final Message first = getMessage("first");
+        final CompletableFuture<Long> firstId = deliveryLog.append(first);
+        final CompletableFuture<Long> secondId = deliveryLog.append(getMessage("second"));
+        deliveryLog.sync();
+        deliveryLog.complete(secondId.get());
+        deliveryLog.shutdown();
+
+        // When
+        final Map<Long, Message> recovered = open(10).drainRecovered();
+
+        // Then
+        assertThat(recovered).containsOnlyKeys(firstId.get());
+        final Message message = recovered.get(firstId.get());
+        assertThat(message.getBody()).isEqualTo(first.getBody());
+        assertThat(message.getMessageProperties().getMessageId()).isEqualTo(first.getMessageProperties().getMessageId());
+        assertThat(message.getMessageProperties().getConsumerQueue()).isEqualTo("webhook");
+        assertThat(message.getMessageProperties().getContentType()).isEqualTo(MessageProperties.CONTENT_TYPE_JSON);
+        assertThat(message.getMessageProperties().getTimestamp()).isEqualTo(first.getMessageProperties().getTimestamp());
+        assertThat(message.getMessageProperties().getHeaders())
+                .containsEntry("__TypeId__", "io.barracks.webhookservice.model.DeviceEventHook")
+                .containsEntry(RetryPublisher.ATTEMPT_HEADER, 2);
+    }
+
+    @Test
+    public void open_shouldIgnoreTornRecords() throws Exception {
+        // Given
+        final DeliveryLog deliveryLog = open(10);
+        final CompletableFuture<Long> firstId = deliveryLog.append(getMessage("first"));
+        deliveryLog.append(getMessage("second"));
+        deliveryLog.shutdown();
+        final File segment = folder.getRoot().listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            final int firstLength = file.readInt();
+            file.seek(4 + 1 + 8 + 4 + firstLength + 4 + 1 + 8 + 4 + 3);
+            file.write(0xFF);
+        }
+
+        // When
+        final Map<Long, Message> recovered = open(10).drainRecovered();
+
+        // Then
+        assertThat(recovered).containsOnlyKeys(firstId.get());
+    }
+
+    @Test
+    public void complete_shouldDeleteSegmentsWithoutPendingDeliveries() throws Exception {
+        // Given
+        final DeliveryLog deliveryLog = open(100);
+        final CompletableFuture<Long> first = deliveryLog.append(getMessage("first"));
+        for (int i = 0; i < 40; i++) {
+            final CompletableFuture<Long> next = deliveryLog.append(getMessage("message-" + i));
+            deliveryLog.sync();
+            deliveryLog.complete(next.get());
+        }
+        final int segments = folder.getRoot().list().length;
+
+        // When
+        deliveryLog.complete(first.get());
+
+        // Then
+        assertThat(segments).isGreaterThan(1);
+        assertThat(folder.getRoot().list()).hasSize(1);
+        deliveryLog.shutdown();
+        assertThat(open(100).drainRecovered()).isEmpty();
+    }
+
+    @Test
+    public void complete_shouldKeepNewerSegmentsWhileOlderDeliveriesArePending() throws Exception {
+        // Given
+        final DeliveryLog deliveryLog = open(100);
+        final CompletableFuture<Long> first = deliveryLog.append(getMessage("first"));
+        final CompletableFuture<Long> second = deliveryLog.append(getMessage("second"));
+        deliveryLog.sync();
+        appendAndComplete(deliveryLog, 20);
+
+        // When
+        deliveryLog.complete(second.get());
+        appendAndComplete(deliveryLog, 40);
+
+        // Then
+        deliveryLog.shutdown();
+        assertThat(open(100).drainRecovered()).containsOnlyKeys(first.get());
+    }
+
+    private void appendAndComplete(DeliveryLog deliveryLog, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            final CompletableFuture<Long> next = deliveryLog.append(getMessage("message-" + i));
+            deliveryLog.sync();
+            deliveryLog.complete(next.get());
+        }
+    }
+
+    private DeliveryLog open(int maxPending) throws IOException {
+        return new DeliveryLog(true, folder.getRoot().toPath(), SEGMENT_SIZE, maxPending, mock(ScheduledExecutorService.class));
+    }
+
+    private static Message getMessage(String body) {
+        final MessageProperties properties = new MessageProperties();
+        properties.setMessageId(body);
+        properties.setConsumerQueue("webhook");
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setTimestamp(new Date(1487000000000L));
+        properties.setHeader("__TypeId__", "io.barracks.webhookservice.model.DeviceEventHook");
+        properties.setHeader(RetryPublisher.ATTEMPT_HEADER, 2);
+        final StringBuilder payload = new StringBuilder("{\"body\":\"").append(body).append('"');
+        for (int i = 0; i < 10; i++) {
+            payload.append(",\"padding").append(i).append("\":\"0123456789\"");
+        }
+        return new Message(payload.append('}').toString().getBytes(), properties);
+    }
+
+}
@@ -25,7 +25,10 @@
 package io.barracks.webhookservice.rabbitmq;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import io.barracks.webhookservice.client.exception.WebhookClientException;
 import io.barracks.webhookservice.manager.WebhookManager;
+import io.barracks.webhookservice.metrics.WebhookMetrics;
 import io.barracks.webhookservice.model.*;
 import io.barracks.webhookservice.utils.DeviceChangeEventUtils;
 import io.barracks.webhookservice.utils.DeviceEventUtils;
@@ -33,10 +36,24 @@ import io.barracks.webhookservice.utils.HookUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
 
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -47,9 +64,53 @@ public class DeviceMessageReceiverTest {
     @Mock
     private WebhookManager webhookManager;
 
+    @Mock
+    private Channel channel;
+
+    @Mock
+    private RetryPublisher retryPublisher;
+
+    @Mock
+    private ParkingLot parkingLot;
+
+    @Mock
+    private DeliveryLog deliveryLog;
+
+    private final long deliveryTag = 42L;
+
+    private final Queue<Runnable> deferredSettlements = new ArrayDeque<>();
+
+    private boolean deferSettlements;
+
+    private final Executor settlementExecutor = runnable -> {
+        if (deferSettlements) {
+            deferredSettlements.add(runnable);
+        } else {
+            runnable.run();
+        }
+    };
+
+    private Message message;
+
     @Before
     public void setUp() {
-        webhookMessageListener = new WebhookMessageListener(webhookManager, new ObjectMapper(), mock(CounterService.class));
+        webhookMessageListener = new WebhookMessageListener(
+                webhookManager,
+                new ObjectMapper(),
+                mock(CounterService.class),
+                retryPublisher,
+                parkingLot,
+                new BatchAcknowledger(50, 20),
+                new WebhookMetrics(),
+                deliveryLog,
+                new DeduplicationCache(1024, 60000),
+                new DeliveryExecutor(null, 1),
+                new ReactiveDeliveryPipeline(false, 1, 1, 1, 60000),
+                settlementExecutor
+        );
+        final MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setDeliveryTag(deliveryTag);
+        message = new Message(new byte[0], messageProperties);
     }
 
     @Test
@@ -58,12 +119,109 @@ public class DeviceMessageReceiverTest {
         final Hook hook = HookUtils.getHook();
         final DeviceEvent deviceEvent = DeviceEventUtils.getDeviceEvent();
         final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(deviceEvent).build();
+        when(webhookManager.postDeviceEventHook(deviceEventHook)).thenReturn(CompletableFuture.completedFuture(null));
 
         //When
-        webhookMessageListener.receiveMessage(deviceEventHook);
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
 
         //Then
         verify(webhookManager).postDeviceEventHook(deviceEventHook);
+        verify(channel).basicAck(deliveryTag, false);
+    }
+
+    @Test
+    public void receiveMessage_whenDeliveryIsLogged_shouldAcknowledgeOnceSyncedAndCompleteAfterDelivery() throws Exception {
+        //Given
+        final Hook hook = HookUtils.getHook();
+        final DeviceEvent deviceEvent = DeviceEventUtils.getDeviceEvent();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(deviceEvent).build();
+        final CompletableFuture<Void> delivery = new CompletableFuture<>();
+        final CompletableFuture<Long> logged = new CompletableFuture<>();
+        when(webhookManager.postDeviceEventHook(deviceEventHook)).thenReturn(delivery);
+        when(deliveryLog.append(message)).thenReturn(logged);
+
+        //When
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        logged.complete(7L);
+
+        //Then
+        verify(channel).basicAck(deliveryTag, false);
+        verify(deliveryLog, never()).complete(anyLong());
+        delivery.complete(null);
+        verify(deliveryLog).complete(7L);
+        verify(channel).basicAck(deliveryTag, false);
+    }
+
+    @Test
+    public void receiveMessage_shouldPassMessageIdAsIdempotencyKey() throws Exception {
+        //Given
+        final Hook hook = HookUtils.getHook();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(DeviceEventUtils.getDeviceEvent()).build();
+        final ArgumentCaptor<DeviceEventHook> captor = ArgumentCaptor.forClass(DeviceEventHook.class);
+        message.getMessageProperties().setMessageId("message-id");
+        when(webhookManager.postDeviceEventHook(deviceEventHook)).thenReturn(CompletableFuture.completedFuture(null));
+
+        //When
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
+
+        //Then
+        verify(webhookManager).postDeviceEventHook(captor.capture());
+        assertThat(captor.getValue().getIdempotencyKey()).isEqualTo("message-id");
+    }
+
+    @Test
+    public void receiveMessage_whenMessageWasAlreadyDelivered_shouldSkipIt() throws Exception {
+        //Given
+        final Hook hook = HookUtils.getHook();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(DeviceEventUtils.getDeviceEvent()).build();
+        final Message redelivered = new Message(message.getBody(), new MessageProperties());
+        redelivered.getMessageProperties().setDeliveryTag(deliveryTag + 1);
+        redelivered.getMessageProperties().setRedelivered(true);
+        when(webhookManager.postDeviceEventHook(deviceEventHook)).thenReturn(CompletableFuture.completedFuture(null));
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
+
+        //When
+        webhookMessageListener.receiveMessage(deviceEventHook, redelivered, channel);
+
+        //Then
+        verify(webhookManager).postDeviceEventHook(deviceEventHook);
+        verify(channel).basicAck(deliveryTag + 1, false);
+    }
+
+    @Test
+    public void receiveMessage_whenIdenticalMessagesAreFirstDeliveries_shouldPostBoth() throws Exception {
+        //Given
+        final Hook hook = HookUtils.getHook();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(DeviceEventUtils.getDeviceEvent()).build();
+        final Message repeated = new Message(message.getBody(), new MessageProperties());
+        repeated.getMessageProperties().setDeliveryTag(deliveryTag + 1);
+        when(webhookManager.postDeviceEventHook(deviceEventHook)).thenReturn(CompletableFuture.completedFuture(null));
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
+
+        //When
+        webhookMessageListener.receiveMessage(deviceEventHook, repeated, channel);
+
+        //Then
+        verify(webhookManager, times(2)).postDeviceEventHook(deviceEventHook);
+    }
+
+    @Test
+    public void receiveMessage_whenDeliveryFailed_shouldNotSkipRedelivery() throws Exception {
+        //Given
+        final Hook hook = HookUtils.getHook();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(DeviceEventUtils.getDeviceEvent()).build();
+        final CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException());
+        when(webhookManager.postDeviceEventHook(deviceEventHook)).thenReturn(failed);
+        when(retryPublisher.retry(message)).thenReturn(true);
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
+
+        //When
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
+
+        //Then
+        verify(webhookManager, times(2)).postDeviceEventHook(deviceEventHook);
     }
 
     @Test
@@ -73,12 +231,96 @@ public class DeviceMessageReceiverTest {
         final DeviceEvent deviceEvent = DeviceEventUtils.getDeviceEvent();
         final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(deviceEvent).build();
         doThrow(Exception.class).when(webhookManager).postDeviceEventHook(deviceEventHook);
+        when(retryPublisher.retry(message)).thenReturn(true);
 
         //When
-        webhookMessageListener.receiveMessage(deviceEventHook);
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
 
         //Then
         verify(webhookManager).postDeviceEventHook(deviceEventHook);
+        verify(retryPublisher).retry(message);
+        verify(channel).basicAck(deliveryTag, false);
+    }
+
+    @Test
+    public void receiveMessage_whenDeliveryFails_shouldRetryOnSettlementExecutor() throws Exception {
+        //Given
+        final Hook hook = HookUtils.getHook();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(DeviceEventUtils.getDeviceEvent()).build();
+        final CompletableFuture<Void> delivery = new CompletableFuture<>();
+        when(webhookManager.postDeviceEventHook(deviceEventHook)).thenReturn(delivery);
+        when(retryPublisher.retry(message)).thenReturn(true);
+        deferSettlements = true;
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
+
+        //When
+        delivery.completeExceptionally(new RuntimeException());
+
+        //Then
+        verifyZeroInteractions(retryPublisher);
+        assertThat(deferredSettlements).hasSize(1);
+        deferredSettlements.poll().run();
+        verify(retryPublisher).retry(message);
+        verify(channel).basicAck(deliveryTag, false);
+    }
+
+    @Test
+    public void receiveMessage_whenDeliveryFailsAndRetriesAreExhausted_shouldParkMessage() throws Exception {
+        //Given
+        final Hook hook = HookUtils.getHook();
+        final DeviceEvent deviceEvent = DeviceEventUtils.getDeviceEvent();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(deviceEvent).build();
+        final CompletableFuture<Void> delivery = new CompletableFuture<>();
+        when(webhookManager.postDeviceEventHook(deviceEventHook)).thenReturn(delivery);
+        when(retryPublisher.retry(message)).thenReturn(false);
+
+        final RuntimeException failure = new RuntimeException();
+
+        //When
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        delivery.completeExceptionally(failure);
+
+        //Then
+        verify(retryPublisher).retry(message);
+        verify(parkingLot).park(message, hook.getName(), failure);
+        verify(channel).basicAck(deliveryTag, false);
+    }
+
+    @Test
+    public void receiveMessage_whenEndpointRejectsRequest_shouldParkMessageWithoutRetry() throws Exception {
+        //Given
+        final Hook hook = HookUtils.getHook();
+        final DeviceEvent deviceEvent = DeviceEventUtils.getDeviceEvent();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(deviceEvent).build();
+        final CompletableFuture<Void> delivery = new CompletableFuture<>();
+        final WebhookClientException failure = new WebhookClientException(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+        delivery.completeExceptionally(failure);
+        when(webhookManager.postDeviceEventHook(deviceEventHook)).thenReturn(delivery);
+
+        //When
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
+
+        //Then
+        verifyZeroInteractions(retryPublisher);
+        verify(parkingLot).park(message, hook.getName(), failure);
+        verify(channel).basicAck(deliveryTag, false);
+    }
+
+    @Test
+    public void receiveMessage_whenRetryCannotBePublished_shouldRequeueMessage() throws Exception {
+        //Given
+        final Hook hook = HookUtils.getHook();
+        final DeviceEvent deviceEvent = DeviceEventUtils.getDeviceEvent();
+        final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(deviceEvent).build();
+        doThrow(Exception.class).when(webhookManager).postDeviceEventHook(deviceEventHook);
+        doThrow(AmqpException.class).when(retryPublisher).retry(message);
+
+        //When
+        webhookMessageListener.receiveMessage(deviceEventHook, message, channel);
+
+        //Then
+        verify(channel).basicNack(deliveryTag, false, true);
     }
 
     @Test
@@ -90,12 +332,14 @@ public class DeviceMessageReceiverTest {
                 .hook(hook)
                 .deviceChangeEvent(deviceChangeEvent)
                 .build();
+        when(webhookManager.postDeviceChangeEventHook(deviceChangeEventHook)).thenReturn(CompletableFuture.completedFuture(null));
 
         //When
-        webhookMessageListener.receiveChangeMessage(deviceChangeEventHook);
+        webhookMessageListener.receiveChangeMessage(deviceChangeEventHook, message, channel);
 
         //Then
         verify(webhookManager).postDeviceChangeEventHook(deviceChangeEventHook);
+        verify(channel).basicAck(deliveryTag, false);
     }
 
     @Test
@@ -108,12 +352,15 @@ public class DeviceMessageReceiverTest {
                 .deviceChangeEvent(deviceChangeEvent)
                 .build();
         doThrow(Exception.class).when(webhookManager).postDeviceChangeEventHook(deviceChangeEventHook);
+        when(retryPublisher.retry(message)).thenReturn(true);
 
         //When
-        webhookMessageListener.receiveChangeMessage(deviceChangeEventHook);
+        webhookMessageListener.receiveChangeMessage(deviceChangeEventHook, message, channel);
 
         //Then
         verify(webhookManager).postDeviceChangeEventHook(deviceChangeEventHook);
+        verify(retryPublisher).retry(message);
+        verify(channel).basicAck(deliveryTag, false);
     }
 
 }
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.barracks.webhookservice.model.DeviceChangeEventHook;
+import io.barracks.webhookservice.model.DeviceEventHook;
+import io.barracks.webhookservice.model.Hook;
+import io.barracks.webhookservice.utils.DeviceChangeEventHookUtils;
+import io.barracks.webhookservice.utils.HookUtils;
+import org.junit.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.StreamUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HookMessageConverterTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final HookMessageConverter hookMessageConverter = new HookMessageConverter(objectMapper);
+
+    @Test
+    public void fromMessage_whenDeviceEventHook_shouldMatchJacksonConversion() throws Exception {
+        // Given
+        final Message message = getMessage(
+                StreamUtils.copyToByteArray(getClass().getResourceAsStream("/io/barracks/webhookservice/model/deviceEventHook.json")),
+                DeviceEventHook.class
+        );
+        final Jackson2JsonMessageConverter jacksonConverter = new Jackson2JsonMessageConverter();
+        jacksonConverter.setJsonObjectMapper(objectMapper);
+        final DeviceEventHook expected = (DeviceEventHook) jacksonConverter.fromMessage(message);
+
+        // When
+        final DeviceEventHook result = (DeviceEventHook) hookMessageConverter.fromMessage(message);
+
+        // Then
+        assertThat(result.getRawDeviceEvent()).isNotNull();
+        assertThat(result.getHook()).isEqualTo(expected.getHook());
+        assertThat(result).isEqualTo(expected);
+    }
+
+    @Test
+    public void fromMessage_whenDeviceChangeEventHook_shouldReadBackSerializedHook() throws Exception {
+        // Given
+        final DeviceChangeEventHook source = DeviceChangeEventHookUtils.getDeviceChangeEventHook();
+        final Message message = hookMessageConverter.toMessage(source, new MessageProperties());
+
+        // When
+        final DeviceChangeEventHook result = (DeviceChangeEventHook) hookMessageConverter.fromMessage(message);
+
+        // Then
+        assertThat(result.getRawDeviceChangeEvent()).isNotNull();
+        assertThat(result).isEqualTo(source);
+    }
+
+    @Test
+    public void fromMessage_whenEventIsMissing_shouldOnlyBindHook() throws Exception {
+        // Given
+        final Hook hook = HookUtils.getHook();
+        final String json = "{\"unknown\":[1,{\"deviceEvent\":{}}],\"hook\":" + objectMapper.writeValueAsString(hook) + "}";
+
+        // When
+        final DeviceEventHook result = (DeviceEventHook) hookMessageConverter.fromMessage(
+                getMessage(json.getBytes(StandardCharsets.UTF_8), DeviceEventHook.class)
+        );
+
+        // Then
+        assertThat(result).isEqualTo(DeviceEventHook.builder().hook(hook).build());
+    }
+
+    @Test
+    public void fromMessage_whenEventIsNotAnObject_shouldThrowException() throws Exception {
+        // Given
+        final Message message = getMessage("{\"deviceEvent\":\"nope\"}".getBytes(StandardCharsets.UTF_8), DeviceEventHook.class);
+
+        // Then
+        assertThatThrownBy(() -> hookMessageConverter.fromMessage(message)).isInstanceOf(MessageConversionException.class);
+    }
+
+    @Test
+    public void fromMessage_whenOtherType_shouldUseJacksonConversion() throws Exception {
+        // Given
+        final Hook hook = HookUtils.getHook();
+        final Message message = hookMessageConverter.toMessage(hook, new MessageProperties());
+
+        // When
+        final Object result = hookMessageConverter.fromMessage(message);
+
+        // Then
+        assertThat(result).isEqualTo(hook);
+    }
+
+    private Message getMessage(byte[] body, Class<?> type) {
+        final MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        messageProperties.setHeader("__TypeId__", type.getName());
+        return new Message(body, messageProperties);
+    }
+
+}
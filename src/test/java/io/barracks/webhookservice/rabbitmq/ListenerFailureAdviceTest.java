@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.Channel;
+import io.barracks.webhookservice.model.DeviceEventHook;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.listener.exception.ListenerExecutionFailedException;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ListenerFailureAdviceTest {
+
+    private static final long DELIVERY_TAG = 42L;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final HookMessageConverter hookMessageConverter = new HookMessageConverter(objectMapper);
+
+    @Mock
+    private Channel channel;
+
+    @Mock
+    private ParkingLot parkingLot;
+
+    @Mock
+    private CounterService counter;
+
+    @Mock
+    private BatchAcknowledger batchAcknowledger;
+
+    @Mock
+    private MethodInvocation invocation;
+
+    private ListenerFailureAdvice listenerFailureAdvice;
+
+    @Before
+    public void setUp() {
+        listenerFailureAdvice = new ListenerFailureAdvice(batchAcknowledger, parkingLot, counter);
+    }
+
+    @Test
+    public void invoke_whenBodyIsNotJson_shouldParkAndAcknowledgeMessage() throws Throwable {
+        // Given
+        final Message message = getMessage("not json");
+        givenListenerConverts(message);
+
+        // When
+        final Object result = listenerFailureAdvice.invoke(invocation);
+
+        // Then
+        assertThat(result).isNull();
+        final ArgumentCaptor<Throwable> reason = ArgumentCaptor.forClass(Throwable.class);
+        final InOrder inOrder = inOrder(batchAcknowledger, parkingLot);
+        inOrder.verify(batchAcknowledger).track(channel, DELIVERY_TAG);
+        inOrder.verify(parkingLot).park(eq(message), eq(null), reason.capture());
+        inOrder.verify(batchAcknowledger).acknowledge(channel, DELIVERY_TAG);
+        verify(batchAcknowledger, never()).reject(any(Channel.class), anyLong());
+        assertThat(reason.getValue()).isInstanceOf(MessageConversionException.class);
+    }
+
+    @Test
+    public void invoke_whenParkingFails_shouldRejectMessage() throws Throwable {
+        // Given
+        final Message message = getMessage("[]");
+        givenListenerConverts(message);
+        doThrow(new AmqpConnectException(new ConnectException())).when(parkingLot).park(any(Message.class), any(), any(Throwable.class));
+
+        // When
+        listenerFailureAdvice.invoke(invocation);
+
+        // Then
+        verify(batchAcknowledger).track(channel, DELIVERY_TAG);
+        verify(batchAcknowledger).reject(channel, DELIVERY_TAG);
+        verify(batchAcknowledger, never()).acknowledge(any(Channel.class), anyLong());
+    }
+
+    @Test
+    public void invoke_whenRealAcknowledgerRejects_shouldNotLeaveMessageUnacked() throws Throwable {
+        // Given
+        final Message message = getMessage("not json");
+        givenListenerConverts(message);
+        doThrow(new AmqpConnectException(new ConnectException())).when(parkingLot).park(any(Message.class), any(), any(Throwable.class));
+        final BatchAcknowledger acknowledger = new BatchAcknowledger(10, 20);
+        listenerFailureAdvice = new ListenerFailureAdvice(acknowledger, parkingLot, counter);
+
+        // When
+        listenerFailureAdvice.invoke(invocation);
+        acknowledger.shutdown();
+
+        // Then
+        verify(channel).basicReject(DELIVERY_TAG, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void invoke_whenListenerSucceeds_shouldNotSettleMessage() throws Throwable {
+        // Given
+        doReturn("result").when(invocation).proceed();
+
+        // When
+        final Object result = listenerFailureAdvice.invoke(invocation);
+
+        // Then
+        assertThat(result).isEqualTo("result");
+        verifyZeroInteractions(batchAcknowledger, parkingLot);
+    }
+
+    @Test
+    public void invoke_whenArgumentsAreNotChannelAndMessage_shouldRethrow() throws Throwable {
+        // Given
+        final IllegalStateException exception = new IllegalStateException();
+        doThrow(exception).when(invocation).proceed();
+        doReturn(new Object[0]).when(invocation).getArguments();
+
+        // Then
+        assertThatThrownBy(() -> listenerFailureAdvice.invoke(invocation)).isSameAs(exception);
+        verifyZeroInteractions(batchAcknowledger, parkingLot);
+    }
+
+    private void givenListenerConverts(Message message) throws Throwable {
+        doReturn(new Object[]{channel, message}).when(invocation).getArguments();
+        doAnswer(call -> {
+            try {
+                return hookMessageConverter.fromMessage(message);
+            } catch (MessageConversionException e) {
+                throw new ListenerExecutionFailedException("Failed to convert message", e, message);
+            }
+        }).when(invocation).proceed();
+    }
+
+    private Message getMessage(String body) {
+        final MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setHeader("__TypeId__", DeviceEventHook.class.getName());
+        properties.setDeliveryTag(DELIVERY_TAG);
+        return new Message(body.getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+}
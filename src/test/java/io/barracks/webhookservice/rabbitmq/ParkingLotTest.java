@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParkingLotTest {
+
+    private static final String QUEUE_NAME = "parkinglot";
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private Channel channel;
+
+    private ParkingLot parkingLot;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        parkingLot = new ParkingLot(rabbitTemplate, new ObjectMapper(), QUEUE_NAME, 100);
+        when(rabbitTemplate.execute(any(ChannelCallback.class)))
+                .thenAnswer(invocation -> ((ChannelCallback<?>) invocation.getArguments()[0]).doInRabbit(channel));
+        final AMQP.Queue.DeclareOk declareOk = mock(AMQP.Queue.DeclareOk.class);
+        when(declareOk.getMessageCount()).thenReturn(1);
+        when(channel.queueDeclarePassive(QUEUE_NAME)).thenReturn(declareOk);
+    }
+
+    @Test
+    public void replay_shouldPublishToSourceQueue() throws Exception {
+        // Given
+        final GetResponse parked = getResponse(Collections.singletonMap(ParkingLot.SOURCE_QUEUE_HEADER, "webhook"));
+        when(channel.basicGet(QUEUE_NAME, false)).thenReturn(parked);
+        final ReplayProgress progress = new ReplayProgress();
+
+        // When
+        parkingLot.replay(Optional.empty(), Long.MAX_VALUE, 100, progress);
+
+        // Then
+        verify(channel).basicPublish(eq(""), eq("webhook"), any(AMQP.BasicProperties.class), eq(parked.getBody()));
+        verify(channel).basicAck(7, false);
+        assertThat(progress.getReplayed()).isEqualTo(1);
+    }
+
+    @Test
+    public void replay_whenSourceQueueIsMissing_shouldLeaveMessageParked() throws Exception {
+        // Given
+        final GetResponse parked = getResponse(Collections.emptyMap());
+        when(channel.basicGet(QUEUE_NAME, false)).thenReturn(parked);
+        final ReplayProgress progress = new ReplayProgress();
+
+        // When
+        parkingLot.replay(Optional.empty(), Long.MAX_VALUE, 100, progress);
+
+        // Then
+        verify(channel).basicPublish("", QUEUE_NAME, parked.getProps(), parked.getBody());
+        verify(channel, never()).basicPublish(eq(""), eq((String) null), any(AMQP.BasicProperties.class), any(byte[].class));
+        verify(channel).basicAck(7, false);
+        assertThat(progress.getScanned()).isEqualTo(1);
+        assertThat(progress.getReplayed()).isZero();
+    }
+
+    private static GetResponse getResponse(Map<String, Object> headers) {
+        final AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder().headers(headers).build();
+        return new GetResponse(new Envelope(7, false, "", QUEUE_NAME), properties, "{}".getBytes(), 0);
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import io.barracks.webhookservice.manager.exception.BulkheadFullException;
+import io.barracks.webhookservice.model.Hook;
+import io.barracks.webhookservice.utils.HookUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReactiveDeliveryPipelineTest {
+
+    private final List<String> started = new CopyOnWriteArrayList<>();
+
+    private ReactiveDeliveryPipeline pipeline;
+
+    @After
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    public void submit_whenNotStarted_shouldFail() {
+        // Given
+        pipeline = new ReactiveDeliveryPipeline(false, 1, 1, 1, 60000);
+        pipeline.start();
+
+        // When
+        final CompletableFuture<Void> result = pipeline.submit(HookUtils.getHook(), () -> CompletableFuture.completedFuture(null));
+
+        // Then
+        assertThatThrownBy(result::join).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void submit_shouldPropagateResults() {
+        // Given
+        pipeline = new ReactiveDeliveryPipeline(true, 1, 16, 16, 60000);
+        pipeline.start();
+        final RuntimeException exception = new RuntimeException();
+
+        // When
+        final CompletableFuture<Void> success = pipeline.submit(HookUtils.getHook(), () -> CompletableFuture.completedFuture(null));
+        final CompletableFuture<Void> failure = pipeline.submit(HookUtils.getHook(), () -> {
+            throw exception;
+        });
+
+        // Then
+        assertThat(success).isCompleted();
+        assertThatThrownBy(failure::join).hasCause(exception);
+    }
+
+    @Test
+    public void submit_shouldLimitConcurrencyPerHook() {
+        // Given
+        pipeline = new ReactiveDeliveryPipeline(true, 1, 16, 16, 60000);
+        pipeline.start();
+        final Hook slowHook = HookUtils.getHook();
+        final Hook otherHook = HookUtils.getHook();
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+
+        // When
+        submit(slowHook, "first", first);
+        submit(slowHook, "second", CompletableFuture.completedFuture(null));
+        submit(otherHook, "other", CompletableFuture.completedFuture(null));
+
+        // Then
+        assertThat(started).containsExactly("first", "other");
+        first.complete(null);
+        assertThat(started).containsExactly("first", "other", "second");
+    }
+
+    @Test
+    public void submit_whenDownstreamHasNoDemand_shouldFailWithoutBlockingCaller() {
+        // Given
+        pipeline = new ReactiveDeliveryPipeline(true, 1, 1, 16, 60000);
+        pipeline.start();
+        final Hook hook = HookUtils.getHook();
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        submit(hook, "first", first);
+        while (pipeline.getAvailableDemand() > 0) {
+            submit(hook, "queued", CompletableFuture.completedFuture(null));
+        }
+
+        // When
+        final CompletableFuture<Void> last = submit(hook, "last", CompletableFuture.completedFuture(null));
+
+        // Then
+        assertThatThrownBy(last::join).hasCauseInstanceOf(BulkheadFullException.class);
+        assertThat(started).containsExactly("first");
+        first.complete(null);
+        assertThat(started).startsWith("first", "queued").doesNotContain("last");
+    }
+
+    @Test
+    public void submit_whenLaneIsSaturated_shouldFailItsDeliveriesAndKeepDeliveringOtherHooks() {
+        // Given
+        pipeline = new ReactiveDeliveryPipeline(true, 1, 8, 2, 60000);
+        pipeline.start();
+        final Hook stuckHook = HookUtils.getHook();
+        final Hook otherHook = HookUtils.getHook();
+        final CompletableFuture<Void> stuck = new CompletableFuture<>();
+        submit(stuckHook, "stuck", stuck);
+        submit(stuckHook, "queued", CompletableFuture.completedFuture(null));
+
+        // When
+        final CompletableFuture<Void> last = submit(stuckHook, "last", CompletableFuture.completedFuture(null));
+        final List<CompletableFuture<Void>> others = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            others.add(submit(otherHook, "other", CompletableFuture.completedFuture(null)));
+        }
+
+        // Then
+        assertThatThrownBy(last::join).hasCauseInstanceOf(BulkheadFullException.class);
+        assertThat(others).allMatch(future -> future.isDone() && !future.isCompletedExceptionally());
+        assertThat(started).containsOnly("stuck", "other").hasSize(33);
+        stuck.complete(null);
+        assertThat(started).endsWith("queued");
+        assertThat(submit(stuckHook, "next", CompletableFuture.completedFuture(null))).isCompleted();
+    }
+
+    @Test
+    public void submit_whenHookIsIdle_shouldReleaseItsGroup() throws Exception {
+        // Given
+        pipeline = new ReactiveDeliveryPipeline(true, 1, 8, 2, 10);
+        pipeline.start();
+        final Hook hook = HookUtils.getHook();
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        submit(hook, "first", first);
+        Thread.sleep(50);
+        assertThat(pipeline.getActiveHooks()).isEqualTo(1);
+
+        // When
+        first.complete(null);
+        final long deadline = System.currentTimeMillis() + 1000;
+        while (pipeline.getActiveHooks() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        // Then
+        assertThat(pipeline.getActiveHooks()).isZero();
+        assertThat(submit(hook, "second", CompletableFuture.completedFuture(null))).isCompleted();
+        assertThat(started).containsExactly("first", "second");
+    }
+
+    private CompletableFuture<Void> submit(Hook hook, String name, CompletableFuture<Void> delivery) {
+        return pipeline.submit(hook, () -> {
+            started.add(name);
+            return delivery;
+        });
+    }
+
+}
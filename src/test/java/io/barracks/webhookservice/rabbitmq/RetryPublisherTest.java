@@ -0,0 +1,178 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rabbitmq;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RetryPublisherTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private final RetryBackOff retryBackOff = new RetryBackOff(1000, 4, 20000, 4, 5);
+
+    private RetryPublisher retryPublisher;
+
+    private String queueName;
+
+    @Before
+    public void setUp() {
+        retryPublisher = new RetryPublisher(rabbitTemplate, retryBackOff);
+        queueName = UUID.randomUUID().toString();
+    }
+
+    @Test
+    public void getDelays_shouldReturnDistinctCappedExponentialDelays() {
+        // When
+        final Iterable<Long> delays = retryBackOff.getDelays();
+
+        // Then
+        assertThat(delays).containsExactly(1000L, 4000L, 16000L, 20000L);
+    }
+
+    @Test
+    public void getJitterSlots_shouldSpreadDelaysBetweenHalfAndFullDelay() {
+        // When
+        final Iterable<Long> slots = retryBackOff.getJitterSlots(1000);
+
+        // Then
+        assertThat(slots).containsExactly(500L, 625L, 750L, 875L, 1000L);
+    }
+
+    @Test
+    public void getQueueDelays_shouldDeclareEveryJitterSlotOfEveryLevel() {
+        // When
+        final List<Long> queueDelays = retryBackOff.getQueueDelays();
+
+        // Then
+        assertThat(queueDelays).doesNotHaveDuplicates();
+        retryBackOff.getDelays().forEach(delay -> assertThat(queueDelays).containsAll(retryBackOff.getJitterSlots(delay)));
+    }
+
+    @Test
+    public void retry_whenFirstFailure_shouldPublishToJitteredFirstLevelQueue() {
+        // Given
+        final Message message = getMessage(null);
+
+        // When
+        final boolean result = retryPublisher.retry(message);
+
+        // Then
+        assertThat(result).isTrue();
+        final ArgumentCaptor<String> routingKey = ArgumentCaptor.forClass(String.class);
+        verify(rabbitTemplate).send(eq(""), routingKey.capture(), eq(message));
+        assertThat(getQueueDelay(routingKey.getValue())).isIn(retryBackOff.getJitterSlots(1000).toArray());
+        assertThat(RetryPublisher.getAttempt(message)).isEqualTo(1);
+    }
+
+    @Test
+    public void retry_whenAlreadyRetried_shouldBackOffExponentially() {
+        // Given
+        final Message message = getMessage(2);
+
+        // When
+        final boolean result = retryPublisher.retry(message);
+
+        // Then
+        assertThat(result).isTrue();
+        final ArgumentCaptor<String> routingKey = ArgumentCaptor.forClass(String.class);
+        verify(rabbitTemplate).send(eq(""), routingKey.capture(), eq(message));
+        assertThat(getQueueDelay(routingKey.getValue())).isIn(retryBackOff.getJitterSlots(16000).toArray());
+        assertThat(RetryPublisher.getAttempt(message)).isEqualTo(3);
+    }
+
+    @Test
+    public void retry_whenJitteredDelaysDiffer_shouldNotQueueShortDelaysBehindLongOnes() {
+        // Given
+        final List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final Message message = getMessage(null);
+            message.getMessageProperties().setExpiration("1000");
+            messages.add(message);
+        }
+
+        // When
+        messages.forEach(retryPublisher::retry);
+
+        // Then
+        final ArgumentCaptor<String> routingKeys = ArgumentCaptor.forClass(String.class);
+        verify(rabbitTemplate, times(200)).send(eq(""), routingKeys.capture(), any(Message.class));
+        final Set<Long> queueDelays = new HashSet<>();
+        routingKeys.getAllValues().forEach(routingKey -> queueDelays.add(getQueueDelay(routingKey)));
+        assertThat(queueDelays).hasSize(5);
+        assertThat(retryBackOff.getQueueDelays()).containsAll(queueDelays);
+        assertThat(messages).allMatch(message -> message.getMessageProperties().getExpiration() == null);
+    }
+
+    @Test
+    public void retry_whenAttemptsAreExhausted_shouldNotPublish() {
+        // Given
+        final Message message = getMessage(4);
+
+        // When
+        final boolean result = retryPublisher.retry(message);
+
+        // Then
+        assertThat(result).isFalse();
+        verifyZeroInteractions(rabbitTemplate);
+    }
+
+    private long getQueueDelay(String routingKey) {
+        assertThat(routingKey).startsWith(queueName + ".retry.");
+        return Long.parseLong(routingKey.substring((queueName + ".retry.").length()));
+    }
+
+    private Message getMessage(Integer attempt) {
+        final MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setConsumerQueue(queueName);
+        if (attempt != null) {
+            messageProperties.setHeader(RetryPublisher.ATTEMPT_HEADER, attempt);
+        }
+        return new Message(new byte[0], messageProperties);
+    }
+
+}
@@ -48,11 +48,14 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(classes = {RabbitMQConfig.class, Application.class})
@@ -102,12 +105,13 @@ public class DeviceMessageReceiverConfigurationTest {
         final Hook hook = HookUtils.getHook();
         final DeviceEvent deviceEvent = DeviceEventUtils.getDeviceEvent();
         final DeviceEventHook deviceEventHook = DeviceEventHook.builder().hook(hook).deviceEvent(deviceEvent).build();
+        when(webhookManager.postDeviceEventHook(any())).thenReturn(CompletableFuture.completedFuture(null));
 
         //When
         this.rabbitTemplate.convertSendAndReceive(exchangeName, "devices.v2.#", deviceEventHook);
 
         //Then
-        verify(webhookMessageListener).receiveMessage(deviceEventHook);
+        verify(webhookMessageListener).receiveMessage(eq(deviceEventHook), any(), any());
         verify(webhookManager).postDeviceEventHook(deviceEventHook);
     }
 
@@ -123,7 +127,7 @@ public class DeviceMessageReceiverConfigurationTest {
         this.rabbitTemplate.convertSendAndReceive(exchangeName, "devices.v2.#", deviceEventHook);
 
         //Then
-        verify(webhookMessageListener).receiveMessage(deviceEventHook);
+        verify(webhookMessageListener).receiveMessage(eq(deviceEventHook), any(), any());
         verify(webhookManager).postDeviceEventHook(deviceEventHook);
     }
 
@@ -136,12 +140,13 @@ public class DeviceMessageReceiverConfigurationTest {
                 .hook(hook)
                 .deviceChangeEvent(deviceChangeEvent)
                 .build();
+        when(webhookManager.postDeviceChangeEventHook(any())).thenReturn(CompletableFuture.completedFuture(null));
 
         //When
         this.rabbitTemplate.convertSendAndReceive(exchangeName, "devices.change.v2.#", deviceChangeEventHook);
 
         //Then
-        verify(webhookMessageListener).receiveChangeMessage(deviceChangeEventHook);
+        verify(webhookMessageListener).receiveChangeMessage(eq(deviceChangeEventHook), any(), any());
         verify(webhookManager).postDeviceChangeEventHook(deviceChangeEventHook);
     }
 
@@ -160,7 +165,7 @@ public class DeviceMessageReceiverConfigurationTest {
         this.rabbitTemplate.convertSendAndReceive(exchangeName, "devices.change.v2.#", deviceChangeEventHook);
 
         //Then
-        verify(webhookMessageListener).receiveChangeMessage(deviceChangeEventHook);
+        verify(webhookMessageListener).receiveChangeMessage(eq(deviceChangeEventHook), any(), any());
         verify(webhookManager).postDeviceChangeEventHook(deviceChangeEventHook);
     }
 
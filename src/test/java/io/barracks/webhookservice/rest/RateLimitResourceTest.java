@@ -0,0 +1,106 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.rest;
+
+import io.barracks.webhookservice.manager.RateLimiterRegistry;
+import io.barracks.webhookservice.manager.exception.InvalidRateLimitException;
+import io.barracks.webhookservice.model.RateLimit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RateLimitResourceTest {
+
+    @Mock
+    private RateLimiterRegistry rateLimiterRegistry;
+
+    private RateLimitResource rateLimitResource;
+
+    private String key;
+
+    @Before
+    public void setUp() {
+        rateLimitResource = new RateLimitResource(rateLimiterRegistry);
+        key = UUID.randomUUID().toString();
+        doReturn(RateLimit.builder().rate(0).burst(20).build()).when(rateLimiterRegistry).getDefaultLimit();
+        doAnswer(invocation -> invocation.getArguments()[1]).when(rateLimiterRegistry).setLimit(anyString(), any(RateLimit.class));
+    }
+
+    @Test
+    public void setLimit_whenLimitIsValid_shouldApplyIt() {
+        // When
+        final RateLimit result = rateLimitResource.setLimit(key, 12.5, Optional.empty());
+
+        // Then
+        assertThat(result).isEqualTo(RateLimit.builder().rate(12.5).burst(20).build());
+        verify(rateLimiterRegistry).setLimit(key, result);
+    }
+
+    @Test
+    public void setLimit_whenRateIsZero_shouldRemoveTheLimit() {
+        // When
+        final RateLimit result = rateLimitResource.setLimit(key, 0, Optional.of(1));
+
+        // Then
+        assertThat(result.isUnlimited()).isTrue();
+    }
+
+    @Test
+    public void setLimit_whenRateIsNegative_shouldReject() {
+        assertInvalid(-1, Optional.empty());
+    }
+
+    @Test
+    public void setLimit_whenRateIsNotFinite_shouldReject() {
+        assertInvalid(Double.NaN, Optional.empty());
+        assertInvalid(Double.POSITIVE_INFINITY, Optional.empty());
+    }
+
+    @Test
+    public void setLimit_whenBurstIsLowerThanOne_shouldReject() {
+        assertInvalid(10, Optional.of(0));
+    }
+
+    private void assertInvalid(double rate, Optional<Integer> burst) {
+        assertThatThrownBy(() -> rateLimitResource.setLimit(key, rate, burst)).isInstanceOf(InvalidRateLimitException.class);
+        verify(rateLimiterRegistry, never()).setLimit(anyString(), any(RateLimit.class));
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 Barracks Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.barracks.webhookservice.utils;
+
+import org.apache.http.nio.ContentDecoder;
+
+import java.nio.ByteBuffer;
+
+public class ChunkedContentDecoder implements ContentDecoder {
+
+    private final byte[] content;
+
+    private final int chunkSize;
+
+    private int position;
+
+    public ChunkedContentDecoder(byte[] content, int chunkSize) {
+        this.content = content;
+        this.chunkSize = chunkSize;
+    }
+
+    public void reset() {
+        position = 0;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+        if (position >= content.length) {
+            return -1;
+        }
+        final int count = Math.min(Math.min(chunkSize, dst.remaining()), content.length - position);
+        dst.put(content, position, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return position >= content.length;
+    }
+
+}
@@ -38,7 +38,7 @@ public class DeviceChangeEventHookUtils {
                 .deviceChangeEvent(getDeviceChangeEvent())
                 .hook(getWebhook())
                 .build();
-        assertThat(deviceChangeEventHook).hasNoNullFieldsOrProperties();
+        assertThat(deviceChangeEventHook).hasNoNullFieldsOrPropertiesExcept("rawDeviceChangeEvent", "idempotencyKey");
         return deviceChangeEventHook;
     }
 